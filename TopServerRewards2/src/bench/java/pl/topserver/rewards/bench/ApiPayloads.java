@@ -0,0 +1,81 @@
+package pl.topserver.rewards.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Odpowiedzi API TopServer.pl w kształcie, w jakim przychodzą na produkcji —
+ * wspólne dla benchmarków dekodera i serwera-atrapy z testu obciążeniowego.
+ */
+final class ApiPayloads {
+
+    private ApiPayloads() {
+    }
+
+    /** Odpowiedź na claim. */
+    static String claim(long voteId) {
+        return "{\"success\":true,\"has_reward\":true,\"vote_id\":" + voteId
+                + ",\"server_name\":\"TopServer.pl\",\"message\":\"Nagroda odebrana\",\"already_claimed\":false}";
+    }
+
+    /** Odpowiedź na claim, gdy głos został już odebrany. */
+    static String alreadyClaimed(long voteId) {
+        return "{\"success\":true,\"has_reward\":false,\"vote_id\":" + voteId
+                + ",\"already_claimed\":true,\"message\":\"Nagroda zostala juz odebrana\"}";
+    }
+
+    /** Odpowiedź na check z listą nieodebranych głosów (pusta lista = brak nagrody). */
+    static String check(String nick, int votes) {
+        StringBuilder json = new StringBuilder(128 + votes * 96);
+        json.append("{\"success\":true,\"has_reward\":").append(votes > 0)
+                .append(",\"nick\":\"").append(nick).append('"');
+        if (votes > 0)
+            json.append(",\"vote_id\":1000,\"server_name\":\"TopServer.pl\"");
+        else
+            json.append(",\"message\":\"Nie znaleziono glosu\"");
+        json.append(",\"votes\":[");
+        for (int i = 0; i < votes; i++) {
+            if (i > 0)
+                json.append(',');
+            json.append("{\"vote_id\":").append(1000 + i)
+                    .append(",\"server_name\":\"TopServer.pl\",\"voted_at\":\"2024-05-01T12:00:00Z\"}");
+        }
+        return json.append("],\"generated_in\":0.0042}").toString();
+    }
+
+    /** Odpowiedź na check_batch dla wielu graczy; co trzeci ma głos. */
+    static String checkBatch(int players) {
+        StringBuilder json = new StringBuilder(64 + players * 160);
+        json.append("{\"success\":true,\"results\":{");
+        for (int i = 0; i < players; i++) {
+            if (i > 0)
+                json.append(',');
+            String nick = "Gracz" + i;
+            json.append('"').append(nick).append("\":").append(check(nick, i % 3 == 0 ? 1 : 0));
+        }
+        return json.append("}}").toString();
+    }
+
+    /** Powiadomienie o jednym głosie wysyłane na webhook. */
+    static String vote(String nick, long voteId) {
+        return "{\"nick\":\"" + nick + "\",\"vote_id\":" + voteId
+                + ",\"server_name\":\"TopServer.pl\",\"voted_at\":\"2024-05-01T12:00:00Z\"}";
+    }
+
+    static byte[] utf8(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
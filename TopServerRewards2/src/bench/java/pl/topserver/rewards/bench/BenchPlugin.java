@@ -0,0 +1,91 @@
+package pl.topserver.rewards.bench;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import pl.topserver.rewards.TopServerRewards;
+import pl.topserver.rewards.config.PluginSettings;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link TopServerRewards} bez onEnable, na {@link FakeServer} — dla
+ * benchmarków kodu, który potrzebuje obiektu pluginu: katalogu danych,
+ * zasobów z jara, loggera albo ustawień z domyślnego config.yml.
+ */
+final class BenchPlugin extends TopServerRewards {
+
+    private static FakeServer server;
+
+    private final PluginSettings settings;
+
+    private BenchPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder,
+            PluginSettings settings) {
+        super(loader, description, dataFolder, new File(dataFolder, "TopServerRewards.jar"));
+        this.settings = settings;
+    }
+
+    /**
+     * Tworzy plugin z katalogiem danych {@code dataFolder}. Serwer jest jeden na JVM, jak w Bukkicie.
+     */
+    static synchronized BenchPlugin create(File dataFolder) throws IOException, InvalidDescriptionException {
+        if (server == null) {
+            server = new FakeServer();
+            Bukkit.setServer(server.server());
+        }
+        PluginDescriptionFile description;
+        try (InputStream in = resource("plugin.yml")) {
+            description = new PluginDescriptionFile(in);
+        }
+        PluginSettings settings = PluginSettings.load(defaultConfig(), Logger.getLogger("BenchPlugin"));
+        BenchPlugin plugin = new BenchPlugin(new JavaPluginLoader(server.server()), description, dataFolder,
+                settings);
+        // Wyniki JMH bez logów z każdego wywołania — zostają ostrzeżenia
+        plugin.getLogger().setLevel(Level.WARNING);
+        return plugin;
+    }
+
+    /**
+     * Gracz online z wszystkimi uprawnieniami.
+     */
+    static synchronized Player player(String name) {
+        return server.join(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)), name, text -> {
+        });
+    }
+
+    @Override
+    public PluginSettings getSettings() {
+        return settings;
+    }
+
+    static YamlConfiguration defaultConfig() throws IOException {
+        try (Reader reader = new InputStreamReader(resource("config.yml"), StandardCharsets.UTF_8)) {
+            return YamlConfiguration.loadConfiguration(reader);
+        }
+    }
+
+    static String defaultConfigText() throws IOException {
+        try (InputStream in = resource("config.yml")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream in = BenchPlugin.class.getClassLoader().getResourceAsStream(name);
+        if (in == null)
+            throw new IOException("brak " + name + " na classpath");
+        return in;
+    }
+}
@@ -0,0 +1,532 @@
+package pl.topserver.rewards.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.InvalidDescriptionException;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import pl.topserver.rewards.TopServerRewards;
+import pl.topserver.rewards.rewards.DeliveryScheduler;
+import pl.topserver.rewards.stats.ClaimStats;
+import pl.topserver.rewards.stats.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Test obciążeniowy odbierania nagród bez serwera Minecraft.
+ * <p>
+ * Prawdziwy plugin jest włączany na {@link FakeServer} z configiem w katalogu
+ * tymczasowym, a wielu graczy naraz wpisuje /ts odbierz — na głównym wątku,
+ * przez {@link TopServerRewards#claimReward}. Po drodze działa wszystko, co na
+ * serwerze: ClaimTracker, CooldownStore, pula odbierania, dziennik z group
+ * commit, rejestr odbierań, claim-all w kilku torach, DeliveryScheduler z
+ * budżetem ticku i RewardPlan. Zamiast API TopServer.pl odpowiada lokalny
+ * serwer-atrapa (opóźnienie, odsetek błędów 5xx, odsetek graczy z nagrodą).
+ * <p>
+ * Wynik odbierania jest odczytywany z wiadomości do gracza — config testu
+ * podmienia końcowe wiadomości na znaczniki z {@link #OUTCOMES}.
+ * <p>
+ * Raport: przepustowość, percentyle czasu całego odbierania, czas ticku
+ * głównego wątku, statystyki kolejki wydawania i przyrost sterty po
+ * rozgrzewce. Jeśli któryś próg jest przekroczony albo część odbierań się nie
+ * zakończyła, kod wyjścia to 1.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbench.main=pl.topserver.rewards.bench.ClaimLoadTest \
+ *     -Dbench.args="claims=20000 players=300 latency-ms=40 error-rate=0.01"
+ * </pre>
+ * Argumenty mają postać klucz=wartość, domyślne wartości są w {@link #DEFAULTS}.
+ */
+public final class ClaimLoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Obciążenie
+        DEFAULTS.put("claims", "10000");
+        DEFAULTS.put("warmup", "1000");
+        DEFAULTS.put("players", "200");
+        // Serwer-atrapa
+        DEFAULTS.put("latency-ms", "30");
+        DEFAULTS.put("jitter-ms", "20");
+        DEFAULTS.put("error-rate", "0.0");
+        DEFAULTS.put("reward-rate", "0.7");
+        DEFAULTS.put("votes", "1");
+        // Ustawienia pluginu jak w config.yml
+        DEFAULTS.put("virtual-threads", "true");
+        DEFAULTS.put("threads", "4");
+        DEFAULTS.put("max-concurrent", "32");
+        DEFAULTS.put("queue-size", "256");
+        DEFAULTS.put("parallel", "4");
+        DEFAULTS.put("tick-budget-ms", "2.0");
+        // Progi (0 = bez progu)
+        DEFAULTS.put("min-throughput", "0");
+        // Odsetek odbierań zakończonych błędem API, bezpiecznikiem albo "serwer zajęty"
+        DEFAULTS.put("max-failure-rate", "0.05");
+        DEFAULTS.put("max-p99-ms", "2000");
+        DEFAULTS.put("max-tick-ms", "5");
+        DEFAULTS.put("max-heap-growth-mb", "32");
+        DEFAULTS.put("timeout-seconds", "300");
+    }
+
+    private enum Outcome {
+        DELIVERED, PARTIAL, NO_REWARD, FAILED, CIRCUIT_OPEN, REJECTED
+    }
+
+    /** Wiadomości kończące odbieranie, podmieniane w configu testu na "@ścieżka". */
+    private static final Map<String, Outcome> OUTCOMES = new LinkedHashMap<>();
+
+    static {
+        // partial jest wysyłane przed thanks, więc przy części nieodebranych głosów wygrywa
+        OUTCOMES.put("messages.claimed.partial", Outcome.PARTIAL);
+        OUTCOMES.put("messages.claimed.thanks", Outcome.DELIVERED);
+        OUTCOMES.put("messages.no-reward", Outcome.NO_REWARD);
+        OUTCOMES.put("messages.api-error", Outcome.FAILED);
+        OUTCOMES.put("messages.api-fail", Outcome.FAILED);
+        OUTCOMES.put("messages.claim-error", Outcome.FAILED);
+        OUTCOMES.put("messages.claim-fail", Outcome.FAILED);
+        OUTCOMES.put("messages.unexpected-error", Outcome.FAILED);
+        OUTCOMES.put("messages.config-error", Outcome.FAILED);
+        OUTCOMES.put("messages.rewards-disabled", Outcome.FAILED);
+        OUTCOMES.put("messages.api-unavailable", Outcome.CIRCUIT_OPEN);
+        OUTCOMES.put("messages.server-busy", Outcome.REJECTED);
+        OUTCOMES.put("messages.cooldown", Outcome.REJECTED);
+        OUTCOMES.put("messages.claim-in-progress", Outcome.REJECTED);
+    }
+
+    private static final String MARKER = "@";
+
+    private final Map<String, String> options;
+    private final StubApi stubApi;
+    private final FakeServer server;
+    private final Path dataFolder;
+    private final LoadTestPlugin plugin;
+    private long sequence;
+
+    private ClaimLoadTest(Map<String, String> options) throws IOException, InvalidDescriptionException {
+        this.options = options;
+        this.stubApi = new StubApi(intOption("latency-ms"), intOption("jitter-ms"), doubleOption("error-rate"),
+                doubleOption("reward-rate"), intOption("votes"));
+        this.server = new FakeServer();
+        Bukkit.setServer(server.server());
+
+        // Katalog plugins/TopServerRewards w katalogu tymczasowym, obok bStats z wyłączoną wysyłką
+        Path pluginsFolder = Files.createTempDirectory("ClaimLoadTest");
+        this.dataFolder = pluginsFolder.resolve("TopServerRewards");
+        Files.createDirectories(dataFolder);
+        writeBStatsConfig(pluginsFolder.resolve("bStats"));
+        writeConfig(dataFolder.resolve("config.yml").toFile());
+        // bStats nie jest tu przepakowany pod pl.topserver.rewards, jak w jarze pluginu
+        System.setProperty("bstats.relocatecheck", "false");
+
+        PluginDescriptionFile description;
+        try (InputStream in = resource("plugin.yml")) {
+            description = new PluginDescriptionFile(in);
+        }
+        this.plugin = new LoadTestPlugin(new JavaPluginLoader(server.server()), description, dataFolder.toFile(),
+                dataFolder.resolve("TopServerRewards.jar").toFile());
+        server.runAndWait(plugin::enable);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                System.err.println("Nieznany argument: " + arg + " (dostepne: " + DEFAULTS.keySet() + ")");
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        ClaimLoadTest test = new ClaimLoadTest(options);
+        int exitCode;
+        try {
+            exitCode = test.run();
+        } finally {
+            test.close();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Domyślny config.yml z jara z ustawieniami testu i znacznikami zamiast końcowych wiadomości.
+     */
+    private void writeConfig(File target) throws IOException {
+        YamlConfiguration config;
+        try (Reader reader = new InputStreamReader(resource("config.yml"), StandardCharsets.UTF_8)) {
+            config = YamlConfiguration.loadConfiguration(reader);
+        }
+        config.set("api-url", stubApi.url());
+        config.set("server-ip", "127.0.0.1");
+        // Każde odbieranie to inny gracz, cooldown nie ma czego blokować
+        config.set("claim-cooldown", 0);
+        config.set("claim-all.parallel", intOption("parallel"));
+        config.set("update-checker.enabled", false);
+        config.set("claim-executor.virtual-threads", Boolean.parseBoolean(options.get("virtual-threads")));
+        config.set("claim-executor.threads", intOption("threads"));
+        config.set("claim-executor.max-concurrent", intOption("max-concurrent"));
+        config.set("claim-executor.queue-size", intOption("queue-size"));
+        config.set("delivery.tick-budget-ms", doubleOption("tick-budget-ms"));
+        // Komendy też idą przez RewardPlan; serwer tylko je liczy
+        config.set("rewards.commands.enabled", true);
+        for (String path : OUTCOMES.keySet())
+            config.set(path, MARKER + path);
+        config.save(target);
+    }
+
+    private static void writeBStatsConfig(Path folder) throws IOException {
+        Files.createDirectories(folder);
+        Files.writeString(folder.resolve("config.yml"), "enabled: false\nserverUuid: \"" + UUID.randomUUID()
+                + "\"\nlogFailedRequests: false\nlogSentData: false\nlogResponseStatusText: false\n");
+    }
+
+    private static InputStream resource(String name) throws IOException {
+        InputStream in = ClaimLoadTest.class.getClassLoader().getResourceAsStream(name);
+        if (in == null)
+            throw new IOException("brak " + name + " na classpath");
+        return in;
+    }
+
+    private int run() throws InterruptedException {
+        System.out.println("Ustawienia: " + options);
+        ClaimStats stats = plugin.getStats();
+
+        int warmup = intOption("warmup");
+        if (warmup > 0) {
+            Result result = drive(warmup, new LatencyHistogram());
+            System.out.printf("Rozgrzewka: %d odbieran w %.1f s%n", warmup, result.elapsedNanos / 1e9);
+        }
+
+        // Pomiar od czystych liczników; sterta mierzona po rozgrzewce, żeby pominąć ładowanie klas i JIT
+        LatencyHistogram endToEnd = new LatencyHistogram();
+        server.resetTickTime();
+        long requestsBefore = stats.getApiRequests();
+        long stubRequestsBefore = stubApi.requests.get();
+        long stubErrorsBefore = stubApi.errors.get();
+        long heapBefore = usedHeap();
+        int claims = intOption("claims");
+        Result result = drive(claims, endToEnd);
+        long heapGrowth = usedHeap() - heapBefore;
+
+        double seconds = result.elapsedNanos / 1e9;
+        double throughput = result.finished() / seconds;
+        System.out.printf("Odbierania: %d w %.2f s, %.0f/s%n", result.finished(), seconds, throughput);
+        System.out.printf("  nagrody: %d (w tym czesciowo: %d), brak nagrody: %d, bledy API: %d, bezpiecznik: %d,"
+                + " odrzucone: %d%n", result.count(Outcome.DELIVERED) + result.count(Outcome.PARTIAL),
+                result.count(Outcome.PARTIAL), result.count(Outcome.NO_REWARD), result.count(Outcome.FAILED),
+                result.count(Outcome.CIRCUIT_OPEN), result.count(Outcome.REJECTED));
+        System.out.printf("  zapytania API: %d (atrapa: %d, w tym 5xx: %d)%n",
+                stats.getApiRequests() - requestsBefore, stubApi.requests.get() - stubRequestsBefore,
+                stubApi.errors.get() - stubErrorsBefore);
+        printHistogram("calosc odbierania", endToEnd);
+        printHistogram("check (z rozgrzewka)", stats.getCheck());
+        printHistogram("claim (z rozgrzewka)", stats.getClaim());
+        printHistogram("wydanie nagrody (z rozgrzewka)", stats.getDelivery());
+        printHistogram("glowny watek / tick", server.getTickTime());
+        DeliveryScheduler delivery = plugin.getDeliveryScheduler();
+        System.out.printf("  kolejka wydawania: budzet %.1f ms, tick srednio %.2f ms, max %.2f ms, wydano %d%n",
+                delivery.getBudgetMillis(), delivery.getAverageTickMillis(), delivery.getMaxTickMillis(),
+                delivery.getDeliveredCount());
+        System.out.printf("  komendy nagrod: %d, ogloszenia: %d%n", server.getDispatchedCommands(),
+                server.getBroadcasts());
+        System.out.printf("  przyrost sterty: %.1f MB%n", heapGrowth / (1024.0 * 1024.0));
+
+        List<String> failures = new ArrayList<>();
+        if (result.finished() < claims)
+            failures.add("niezakonczone odbierania: " + (claims - result.finished()));
+        double minThroughput = doubleOption("min-throughput");
+        if (minThroughput > 0 && throughput < minThroughput)
+            failures.add(String.format("przepustowosc %.0f/s < %.0f/s", throughput, minThroughput));
+        double failureRate = (double) (result.count(Outcome.FAILED) + result.count(Outcome.CIRCUIT_OPEN)
+                + result.count(Outcome.REJECTED)) / Math.max(1, claims);
+        double maxFailureRate = doubleOption("max-failure-rate");
+        if (maxFailureRate > 0 && failureRate > maxFailureRate)
+            failures.add(String.format("nieudane odbierania %.1f%% > %.1f%%", failureRate * 100, maxFailureRate * 100));
+        double p99 = endToEnd.getPercentileMillis(99.0);
+        double maxP99 = doubleOption("max-p99-ms");
+        if (maxP99 > 0 && p99 > maxP99)
+            failures.add(String.format("p99 %.1f ms > %.0f ms", p99, maxP99));
+        double tickP99 = server.getTickTime().getPercentileMillis(99.0);
+        double maxTick = doubleOption("max-tick-ms");
+        if (maxTick > 0 && tickP99 > maxTick)
+            failures.add(String.format("p99 czasu ticku %.2f ms > %.1f ms", tickP99, maxTick));
+        double heapMb = heapGrowth / (1024.0 * 1024.0);
+        double maxHeap = doubleOption("max-heap-growth-mb");
+        if (maxHeap > 0 && heapMb > maxHeap)
+            failures.add(String.format("przyrost sterty %.1f MB > %.0f MB", heapMb, maxHeap));
+
+        if (failures.isEmpty()) {
+            System.out.println("OK");
+            return 0;
+        }
+        for (String failure : failures)
+            System.out.println("PRZEKROCZONO: " + failure);
+        return 1;
+    }
+
+    /**
+     * Puszcza {@code claims} odbierań, najwyżej {@code players} naraz — tylu
+     * graczy czeka w tej samej chwili na wynik komendy. Każde odbieranie to
+     * nowy gracz: wchodzi, wpisuje komendę i wychodzi po wyniku.
+     */
+    private Result drive(int claims, LatencyHistogram endToEnd) throws InterruptedException {
+        Result result = new Result();
+        Semaphore players = new Semaphore(intOption("players"));
+        CountDownLatch done = new CountDownLatch(claims);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < claims; i++) {
+            players.acquire();
+            long n = sequence++;
+            Claim claim = new Claim(System.nanoTime(), () -> {
+                players.release();
+                done.countDown();
+            });
+            Player player = server.join(new UUID(0x7E57L, n), "Gracz" + n, text -> {
+                Outcome outcome = text.startsWith(MARKER) ? OUTCOMES.get(text.substring(MARKER.length())) : null;
+                if (outcome != null && claim.finished.compareAndSet(false, true)) {
+                    if (outcome == Outcome.DELIVERED || outcome == Outcome.PARTIAL)
+                        endToEnd.record(System.nanoTime() - claim.startedAt);
+                    result.counters.get(outcome).incrementAndGet();
+                    server.quit(claim.player);
+                    claim.onFinish.run();
+                }
+            });
+            claim.player = player;
+            server.runOnMainThread(() -> plugin.claimReward(player));
+        }
+
+        if (!done.await(intOption("timeout-seconds"), TimeUnit.SECONDS))
+            System.out.println("Przekroczono timeout-seconds, czekajac na " + done.getCount() + " odbieran");
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void close() {
+        try {
+            server.runAndWait(plugin::disable);
+        } finally {
+            server.stop();
+            stubApi.stop();
+            deleteRecursively(dataFolder.getParent());
+        }
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.out.println("Nie udalo sie usunac " + root + ": " + e.getMessage());
+        }
+    }
+
+    private int intOption(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    private double doubleOption(String key) {
+        return Double.parseDouble(options.get(key));
+    }
+
+    private static void printHistogram(String name, LatencyHistogram histogram) {
+        System.out.printf("  %s: p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms%n", name,
+                histogram.getPercentileMillis(50.0), histogram.getPercentileMillis(95.0),
+                histogram.getPercentileMillis(99.0), histogram.getMaxMillis());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Plugin włączany i wyłączany poza serwerem — setEnabled woła onEnable i onDisable jak PluginManager.
+     */
+    private static final class LoadTestPlugin extends TopServerRewards {
+
+        LoadTestPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+            super(loader, description, dataFolder, file);
+        }
+
+        void enable() {
+            setEnabled(true);
+        }
+
+        void disable() {
+            setEnabled(false);
+        }
+    }
+
+    private static final class Claim {
+        final long startedAt;
+        final Runnable onFinish;
+        final AtomicBoolean finished = new AtomicBoolean();
+        volatile Player player;
+
+        Claim(long startedAt, Runnable onFinish) {
+            this.startedAt = startedAt;
+            this.onFinish = onFinish;
+        }
+    }
+
+    private static final class Result {
+        final Map<Outcome, AtomicLong> counters = new LinkedHashMap<>();
+        long elapsedNanos;
+
+        Result() {
+            for (Outcome outcome : Outcome.values())
+                counters.put(outcome, new AtomicLong());
+        }
+
+        long count(Outcome outcome) {
+            return counters.get(outcome).get();
+        }
+
+        long finished() {
+            long total = 0;
+            for (AtomicLong counter : counters.values())
+                total += counter.get();
+            return total;
+        }
+    }
+
+    /**
+     * Atrapa API TopServer.pl na localhost. Odpowiedzi są wysyłane po zadanym
+     * opóźnieniu; check zwraca nagrodę z prawdopodobieństwem reward-rate, a
+     * każde zapytanie kończy się kodem 500 z prawdopodobieństwem error-rate.
+     */
+    private static final class StubApi {
+
+        private final HttpServer server;
+        private final ExecutorService workers;
+        private final int latencyMillis;
+        private final int jitterMillis;
+        private final double errorRate;
+        private final double rewardRate;
+        private final int votes;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+
+        StubApi(int latencyMillis, int jitterMillis, double errorRate, double rewardRate, int votes)
+                throws IOException {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            this.errorRate = errorRate;
+            this.rewardRate = rewardRate;
+            this.votes = Math.max(1, votes);
+            // Opóźnienie to sleep, więc potrzeba wątku na każde trwające zapytanie
+            workers = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ClaimLoadTest-stub");
+                thread.setDaemon(true);
+                return thread;
+            });
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+            server.createContext("/api", this::handle);
+            server.setExecutor(workers);
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+        }
+
+        private void handle(HttpExchange exchange) throws IOException {
+            try {
+                requests.incrementAndGet();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long delay = latencyMillis + (jitterMillis > 0 ? random.nextInt(jitterMillis + 1) : 0);
+                if (delay > 0)
+                    Thread.sleep(delay);
+
+                if (random.nextDouble() < errorRate) {
+                    errors.incrementAndGet();
+                    exchange.sendResponseHeaders(500, -1);
+                    return;
+                }
+
+                String query = exchange.getRequestURI().getRawQuery();
+                String json;
+                if (query != null && query.contains("action=claim")) {
+                    json = ApiPayloads.claim(parseVoteId(query));
+                } else {
+                    String nick = parseNick(query);
+                    json = ApiPayloads.check(nick, random.nextDouble() < rewardRate ? votes : 0);
+                }
+                byte[] body = ApiPayloads.utf8(json);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(503, -1);
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private static long parseVoteId(String query) {
+            String value = parameter(query, "vote_id");
+            return value == null ? 0L : Long.parseLong(value);
+        }
+
+        private static String parseNick(String query) {
+            String value = parameter(query, "nick");
+            return value == null ? "" : value;
+        }
+
+        private static String parameter(String query, String name) {
+            if (query == null)
+                return null;
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(name + "="))
+                    return pair.substring(name.length() + 1);
+            }
+            return null;
+        }
+
+        void stop() {
+            server.stop(0);
+            workers.shutdownNow();
+        }
+    }
+}
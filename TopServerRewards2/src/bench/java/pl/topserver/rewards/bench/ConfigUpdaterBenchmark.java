@@ -0,0 +1,108 @@
+package pl.topserver.rewards.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bukkit.plugin.InvalidDescriptionException;
+
+import pl.topserver.rewards.updater.ConfigUpdater;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigUpdater#update} przy starcie pluginu, na configu jak domyślny
+ * i na bardzo dużym (domyślny plus kilka tysięcy własnych sekcji admina):
+ * <ul>
+ * <li>unchanged — nic się nie zmieniło od poprzedniego startu, wystarczą sumy SHA-256,</li>
+ * <li>missing — brakuje kilku kluczy, pełne przejście: parsowanie, wstawienie
+ * i zapis pliku. Plik jest przywracany przed każdym wywołaniem.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigUpdaterBenchmark {
+
+    /** Własne sekcje dopisane do dużego configu — każda to 6 linii. */
+    private static final int LARGE_SECTIONS = 5000;
+
+    /** Linie usuwane z configu w wariancie missing (liście w różnych sekcjach). */
+    private static final List<String> REMOVED = List.of("  tick-budget-ms:", "  max-names:", "    amount:",
+            "    thanks:", "  max-per-second:");
+
+    @Param({"small", "large"})
+    public String size;
+
+    @Param({"unchanged", "missing"})
+    public String state;
+
+    private File configFile;
+    private File stateFile;
+    private byte[] userConfig;
+    private ConfigUpdater updater;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InvalidDescriptionException {
+        Path dataFolder = Files.createTempDirectory("ConfigUpdaterBenchmark");
+        configFile = dataFolder.resolve("config.yml").toFile();
+        stateFile = dataFolder.resolve("config-state.properties").toFile();
+        updater = new ConfigUpdater(BenchPlugin.create(dataFolder.toFile()));
+
+        StringBuilder text = new StringBuilder();
+        for (String line : BenchPlugin.defaultConfigText().split("\n", -1)) {
+            if (state.equals("missing") && REMOVED.stream().anyMatch(line::startsWith))
+                continue;
+            text.append(line).append('\n');
+        }
+        if (size.equals("large")) {
+            text.append("\n# Własne ustawienia innych pluginów trzymane w tym samym pliku\ncustom:\n");
+            for (int i = 0; i < LARGE_SECTIONS; i++) {
+                text.append("  tier-").append(i).append(":\n")
+                        .append("    # Nagroda za ").append(i).append(" głosów\n")
+                        .append("    name: \"&6Poziom ").append(i).append("\"\n")
+                        .append("    votes: ").append(i * 10).append('\n')
+                        .append("    items:\n")
+                        .append("      - \"DIAMOND:").append(1 + i % 64).append("\"\n");
+            }
+        }
+        userConfig = text.toString().getBytes(StandardCharsets.UTF_8);
+
+        Files.write(configFile.toPath(), userConfig);
+        if (state.equals("unchanged")) {
+            // Pierwszy start zapisuje stan — kolejne wywołania idą skrótem
+            updater.update();
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void restore() throws IOException {
+        if (state.equals("missing")) {
+            Files.write(configFile.toPath(), userConfig);
+            Files.deleteIfExists(stateFile.toPath());
+        }
+    }
+
+    @Benchmark
+    public void update() {
+        updater.update();
+    }
+}
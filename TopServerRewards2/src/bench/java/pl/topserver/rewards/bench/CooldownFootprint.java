@@ -0,0 +1,87 @@
+package pl.topserver.rewards.bench;
+
+import pl.topserver.rewards.claim.CooldownStore;
+
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Ile pamięci zajmuje {@link CooldownStore} po przejściu wielu różnych graczy.
+ * <p>
+ * Gracze przychodzą ze stałą częstotliwością, więc w oknie cooldownu żyje
+ * około {@code rate × cooldown} wpisów. Wynik pokazuje liczbę żywych wpisów,
+ * rozmiar tablicy, wyliczony rozmiar tablic i zmierzony przyrost sterty —
+ * dla porównania także dla {@code HashMap<UUID, Long>} z tymi samymi wpisami.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbench.main=pl.topserver.rewards.bench.CooldownFootprint \
+ *     -Dbench.args="1000000 60 125"
+ * </pre>
+ * Argumenty: liczba różnych graczy, cooldown w sekundach, graczy na sekundę.
+ */
+public final class CooldownFootprint {
+
+    /** Nagłówek tablicy long[] na 64-bitowej JVM ze skompresowanymi wskaźnikami. */
+    private static final long ARRAY_HEADER_BYTES = 16L;
+
+    private CooldownFootprint() {
+    }
+
+    public static void main(String[] args) {
+        long players = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000L;
+        long cooldownMillis = (args.length > 1 ? Long.parseLong(args[1]) : 60L) * 1000L;
+        long perSecond = args.length > 2 ? Long.parseLong(args[2]) : 125L;
+        long stepMicros = 1_000_000L / Math.max(1, perSecond);
+
+        long before = usedHeap();
+        CooldownStore store = new CooldownStore(cooldownMillis);
+        long nowMicros = 1_000_000_000L;
+        for (long i = 0; i < players; i++) {
+            nowMicros += stepMicros;
+            store.tryAcquire(new UUID(i * 0x9E3779B97F4A7C15L, i), nowMicros / 1000L);
+        }
+        // To samo co okresowe sprzątanie na serwerze — zostają tylko żywe wpisy
+        store.sweep(nowMicros / 1000L);
+        long storeHeap = usedHeap() - before;
+
+        int live = store.size();
+        int capacity = store.capacity();
+        long arrays = 3 * (ARRAY_HEADER_BYTES + 8L * capacity);
+
+        System.out.printf("Gracze: %d, cooldown: %d s, %d/s%n", players, cooldownMillis / 1000L, perSecond);
+        System.out.printf("CooldownStore: %d zywych wpisow, %d slotow, tablice %s, sterta ~%s%n",
+                live, capacity, bytes(arrays), bytes(storeHeap));
+
+        // Porównanie: te same żywe wpisy w HashMap<UUID, Long>
+        before = usedHeap();
+        Map<UUID, Long> map = new HashMap<>();
+        for (long i = players - live; i < players; i++)
+            map.put(new UUID(i * 0x9E3779B97F4A7C15L, i), nowMicros / 1000L);
+        long mapHeap = usedHeap() - before;
+        System.out.printf("HashMap<UUID, Long>: %d wpisow, sterta ~%s%n", map.size(), bytes(mapHeap));
+
+        // Obie struktury muszą dożyć do końca pomiaru
+        Reference.reachabilityFence(store);
+        Reference.reachabilityFence(map);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 10_000L)
+            return bytes + " B";
+        return (bytes + 512L) / 1024L + " KiB";
+    }
+}
@@ -0,0 +1,85 @@
+package pl.topserver.rewards.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.topserver.rewards.claim.CooldownStore;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CooldownStore#tryAcquire}: gracz w cooldownie (spam komendą),
+ * ciągle nowi gracze (wstawianie, rozrost i sprzątanie tablicy) oraz
+ * spam z kilku wątków naraz, jak przy fali odbierań.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CooldownStoreBenchmark {
+
+    private static final long COOLDOWN_MILLIS = 60_000L;
+    private static final long START_MILLIS = 1_000_000L;
+
+    /** Ilu graczy jest w oknie cooldownu. */
+    @Param({"1000", "100000"})
+    public int players;
+
+    private UUID[] ids;
+    private CooldownStore store;
+
+    @Setup
+    public void setup() {
+        ids = new UUID[players];
+        for (int i = 0; i < players; i++)
+            ids[i] = UUID.randomUUID();
+        store = new CooldownStore(COOLDOWN_MILLIS);
+        for (UUID id : ids)
+            store.tryAcquire(id, START_MILLIS);
+    }
+
+    /** Licznik nowych graczy i zegar dla {@link #newPlayer}, osobno na wątek. */
+    @State(Scope.Thread)
+    public static class Clock {
+        long nowMicros = START_MILLIS * 1000L;
+        long sequence;
+    }
+
+    @Benchmark
+    public long inCooldown() {
+        UUID id = ids[ThreadLocalRandom.current().nextInt(players)];
+        return store.tryAcquire(id, START_MILLIS + 1);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long inCooldownContended() {
+        UUID id = ids[ThreadLocalRandom.current().nextInt(players)];
+        return store.tryAcquire(id, START_MILLIS + 1);
+    }
+
+    /**
+     * Każde wywołanie to nowy gracz, a zegar idzie tak, że w oknie cooldownu
+     * mieści się mniej więcej {@code players} wpisów — działa sprzątanie.
+     */
+    @Benchmark
+    public long newPlayer(Clock clock) {
+        clock.sequence++;
+        clock.nowMicros += COOLDOWN_MILLIS * 1000L / players;
+        return store.tryAcquire(new UUID(clock.sequence, ~clock.sequence), clock.nowMicros / 1000L);
+    }
+}
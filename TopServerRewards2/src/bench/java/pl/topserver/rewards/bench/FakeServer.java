@@ -0,0 +1,345 @@
+package pl.topserver.rewards.bench;
+
+import org.bukkit.Server;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import pl.topserver.rewards.stats.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serwer Bukkita dla {@link ClaimLoadTest}: {@link Server}, scheduler, gracze
+ * i konsola jako {@link Proxy}, bez Minecrafta.
+ * <p>
+ * Zadania synchroniczne wykonuje jeden wątek tykający co 50 ms, tak jak główny
+ * wątek serwera — opóźnienia i okresy liczone są w tickach. Czas każdego ticku
+ * trafia do {@link #getTickTime()}. Zadania asynchroniczne idą na osobną pulę.
+ * Nieobsłużone metody zwracają null, 0 albo false.
+ */
+final class FakeServer {
+
+    static final long TICK_MILLIS = 50L;
+
+    private final Logger logger = Logger.getLogger("FakeServer");
+    private final Server server;
+    private final BukkitScheduler scheduler;
+    private final PluginManager pluginManager;
+    private final ConsoleCommandSender console;
+    private final PlayerInventory inventory;
+
+    private final Map<UUID, Player> players = new ConcurrentHashMap<>();
+    private final Map<String, Player> playersByName = new ConcurrentHashMap<>();
+    private final AtomicLong dispatchedCommands = new AtomicLong();
+    private final AtomicLong broadcasts = new AtomicLong();
+
+    private final ScheduledExecutorService mainThread;
+    private final ScheduledExecutorService asyncPool;
+    private final AtomicInteger taskIds = new AtomicInteger();
+    /** Zadania zlecone od ostatniego ticku, z dowolnego wątku. */
+    private final ConcurrentLinkedQueue<Task> submitted = new ConcurrentLinkedQueue<>();
+    /** Zadania czekające na swój tick — tylko główny wątek. */
+    private final PriorityQueue<Task> due = new PriorityQueue<>(
+            Comparator.comparingLong((Task task) -> task.dueTick).thenComparingInt(task -> task.id));
+    private long currentTick;
+    private volatile Thread mainThreadRef;
+    private volatile LatencyHistogram tickTime = new LatencyHistogram();
+
+    FakeServer() {
+        server = proxy(Server.class, this::handleServer);
+        scheduler = proxy(BukkitScheduler.class, this::handleScheduler);
+        pluginManager = proxy(PluginManager.class, (proxy, method, args) -> defaultValue(proxy, method, args));
+        console = proxy(ConsoleCommandSender.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getName" -> "CONSOLE";
+            case "hasPermission", "isOp" -> true;
+            default -> defaultValue(proxy, method, args);
+        });
+        // Cały ekwipunek się mieści — addItem nie zwraca nadmiaru
+        inventory = proxy(PlayerInventory.class, (proxy, method, args) -> method.getName().equals("addItem")
+                ? new HashMap<>()
+                : defaultValue(proxy, method, args));
+
+        mainThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "FakeServer-main");
+            thread.setDaemon(true);
+            mainThreadRef = thread;
+            return thread;
+        });
+        asyncPool = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "FakeServer-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mainThread.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    Server server() {
+        return server;
+    }
+
+    /**
+     * Wchodzi gracz z wszystkimi uprawnieniami. Wiadomości do niego trafiają do {@code chat}.
+     */
+    Player join(UUID playerId, String name, Consumer<String> chat) {
+        Player player = proxy(Player.class, (proxy, method, args) -> switch (method.getName()) {
+            case "getUniqueId" -> playerId;
+            case "getName", "getDisplayName" -> name;
+            case "hasPermission" -> true;
+            case "isOnline" -> players.get(playerId) == proxy;
+            case "getInventory" -> inventory;
+            case "sendMessage" -> {
+                if (args[0] instanceof String text) {
+                    chat.accept(text);
+                } else if (args[0] instanceof String[] lines) {
+                    for (String line : lines)
+                        chat.accept(line);
+                }
+                yield null;
+            }
+            default -> defaultValue(proxy, method, args);
+        });
+        players.put(playerId, player);
+        playersByName.put(name.toLowerCase(Locale.ROOT), player);
+        return player;
+    }
+
+    void quit(Player player) {
+        players.remove(player.getUniqueId(), player);
+        playersByName.remove(player.getName().toLowerCase(Locale.ROOT), player);
+    }
+
+    /**
+     * Wykonuje zadanie na głównym wątku w najbliższym ticku i czeka na wynik —
+     * do włączania i wyłączania pluginu.
+     */
+    void runAndWait(Runnable action) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        submit(new Task(taskIds.incrementAndGet(), null, () -> {
+            try {
+                action.run();
+                done.complete(null);
+            } catch (RuntimeException | Error e) {
+                done.completeExceptionally(e);
+            }
+        }, 1L, 0L));
+        done.join();
+    }
+
+    /**
+     * Wykonuje zadanie na głównym wątku w najbliższym ticku, jak komenda gracza.
+     */
+    void runOnMainThread(Runnable action) {
+        submit(new Task(taskIds.incrementAndGet(), null, action, 1L, 0L));
+    }
+
+    LatencyHistogram getTickTime() {
+        return tickTime;
+    }
+
+    void resetTickTime() {
+        tickTime = new LatencyHistogram();
+    }
+
+    long getDispatchedCommands() {
+        return dispatchedCommands.get();
+    }
+
+    long getBroadcasts() {
+        return broadcasts.get();
+    }
+
+    void stop() {
+        mainThread.shutdownNow();
+        asyncPool.shutdownNow();
+    }
+
+    // ---- główny wątek ----
+
+    private void submit(Task task) {
+        submitted.add(task);
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        long tick = ++currentTick;
+        Task task;
+        while ((task = submitted.poll()) != null) {
+            task.dueTick = tick + task.delay - 1;
+            due.add(task);
+        }
+        while (!due.isEmpty() && due.peek().dueTick <= tick) {
+            task = due.poll();
+            if (task.cancelled)
+                continue;
+            try {
+                task.runnable.run();
+            } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Blad zadania na glownym watku", e);
+            }
+            if (task.period > 0 && !task.cancelled) {
+                task.dueTick = tick + task.period;
+                due.add(task);
+            }
+        }
+        tickTime.record(System.nanoTime() - start);
+    }
+
+    // ---- proxy ----
+
+    private Object handleServer(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getLogger" -> logger;
+            case "getScheduler" -> scheduler;
+            case "getPluginManager" -> pluginManager;
+            case "getConsoleSender" -> console;
+            case "getName" -> "FakeServer";
+            case "getVersion" -> "load-test";
+            case "getBukkitVersion" -> "1.20.4-R0.1-SNAPSHOT";
+            case "getPlayer" -> args[0] instanceof UUID
+                    ? players.get(args[0])
+                    : playersByName.get(((String) args[0]).toLowerCase(Locale.ROOT));
+            case "getPlayerExact" -> playersByName.get(((String) args[0]).toLowerCase(Locale.ROOT));
+            case "getOnlinePlayers" -> new ArrayList<>(players.values());
+            case "isPrimaryThread" -> Thread.currentThread() == mainThreadRef;
+            case "dispatchCommand" -> {
+                dispatchedCommands.incrementAndGet();
+                yield true;
+            }
+            case "broadcastMessage" -> {
+                broadcasts.incrementAndGet();
+                yield players.size();
+            }
+            default -> defaultValue(proxy, method, args);
+        };
+    }
+
+    /**
+     * Warianty z Runnable; te z Consumer&lt;BukkitTask&gt; nie są używane przez plugin.
+     */
+    private Object handleScheduler(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.startsWith("runTask") && args.length >= 2 && args[1] instanceof Runnable runnable) {
+            Plugin owner = (Plugin) args[0];
+            long delay = args.length > 2 ? (Long) args[2] : 0L;
+            long period = args.length > 3 ? (Long) args[3] : 0L;
+            Task task = new Task(taskIds.incrementAndGet(), owner, runnable, Math.max(1L, delay), period);
+            if (name.contains("Asynchronously"))
+                task.future = period > 0
+                        ? asyncPool.scheduleAtFixedRate(runnable, delay * TICK_MILLIS, period * TICK_MILLIS,
+                                TimeUnit.MILLISECONDS)
+                        : asyncPool.schedule(runnable, delay * TICK_MILLIS, TimeUnit.MILLISECONDS);
+            else
+                submit(task);
+            return task;
+        }
+        if (name.equals("cancelTask") || name.equals("cancelTasks"))
+            return null;
+        if (name.startsWith("run") || name.startsWith("schedule") || name.startsWith("call"))
+            throw new UnsupportedOperationException("FakeServer: " + method);
+        return defaultValue(proxy, method, args);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeServer.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return method.getDeclaringClass().getSimpleName() + "@FakeServer";
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class)
+            return false;
+        if (type == int.class || type == short.class || type == byte.class || type == char.class)
+            return type == char.class ? (Object) '\0' : (Object) 0;
+        if (type == long.class)
+            return 0L;
+        if (type == double.class)
+            return 0.0;
+        if (type == float.class)
+            return 0.0f;
+        return null;
+    }
+
+    private static final class Task implements BukkitTask {
+
+        private final int id;
+        private final Plugin owner;
+        private final Runnable runnable;
+        private final long delay;
+        private final long period;
+        private long dueTick;
+        private volatile boolean cancelled;
+        private volatile Future<?> future;
+
+        private Task(int id, Plugin owner, Runnable runnable, long delay, long period) {
+            this.id = id;
+            this.owner = owner;
+            this.runnable = runnable;
+            this.delay = delay;
+            this.period = period;
+        }
+
+        @Override
+        public int getTaskId() {
+            return id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return owner;
+        }
+
+        @Override
+        public boolean isSync() {
+            return future == null;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Future<?> pending = future;
+            if (pending != null)
+                pending.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package pl.topserver.rewards.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import pl.topserver.rewards.api.ApiResponse;
+import pl.topserver.rewards.api.JsonResponseDecoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Dekodowanie odpowiedzi API: pojedynczy claim, check z kilkoma głosami
+ * i check_batch dla całego serwera, z kompresją gzip i bez.
+ * Profil -prof gc pokazuje alokacje na odpowiedź.
+ * <p>
+ * Dla porównania to samo przez json-simple: pełne drzewo JSON, z którego
+ * potem składana jest ta sama {@link ApiResponse}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonResponseDecoderBenchmark {
+
+    @Param({"claim", "check", "batch"})
+    public String payload;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        String json = switch (payload) {
+            case "claim" -> ApiPayloads.claim(1000);
+            case "check" -> ApiPayloads.check("Gracz", 5);
+            case "batch" -> ApiPayloads.checkBatch(100);
+            default -> throw new IllegalArgumentException(payload);
+        };
+        body = ApiPayloads.utf8(json);
+        if (gzip)
+            body = ApiPayloads.gzip(body);
+    }
+
+    @Benchmark
+    public ApiResponse decode() throws IOException {
+        return JsonResponseDecoder.decode(body, gzip);
+    }
+
+    @Benchmark
+    public ApiResponse jsonSimple() throws IOException, ParseException {
+        InputStream in = new ByteArrayInputStream(body);
+        if (gzip)
+            in = new GZIPInputStream(in);
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return toResponse((JSONObject) new JSONParser().parse(reader), true, true);
+        }
+    }
+
+    /**
+     * Te same pola co w dekoderze, z drzewa json-simple.
+     */
+    private static ApiResponse toResponse(JSONObject json, boolean topLevel, boolean withVotes) {
+        Map<String, ApiResponse> results = null;
+        if (topLevel && json.get("results") instanceof JSONObject resultsJson) {
+            results = new HashMap<>();
+            for (Object entry : resultsJson.entrySet()) {
+                Map.Entry<?, ?> result = (Map.Entry<?, ?>) entry;
+                if (result.getValue() instanceof JSONObject resultJson)
+                    results.put((String) result.getKey(), toResponse(resultJson, false, true));
+            }
+        }
+        List<ApiResponse> votes = null;
+        if (withVotes && json.get("votes") instanceof JSONArray votesJson) {
+            votes = new ArrayList<>();
+            for (Object vote : votesJson) {
+                if (vote instanceof JSONObject voteJson) {
+                    ApiResponse parsed = toResponse(voteJson, false, false);
+                    if (parsed.hasVoteId())
+                        votes.add(parsed);
+                }
+            }
+        }
+        Object voteId = json.get("vote_id");
+        return new ApiResponse(Boolean.TRUE.equals(json.get("success")), Boolean.TRUE.equals(json.get("has_reward")),
+                voteId instanceof Number number ? number.longValue() : ApiResponse.NO_VOTE_ID,
+                text(json.get("server_name")), text(json.get("message")), text(json.get("error")), results, votes,
+                Boolean.TRUE.equals(json.get("already_claimed")));
+    }
+
+    private static String text(Object value) {
+        return value == null ? null : value.toString();
+    }
+}
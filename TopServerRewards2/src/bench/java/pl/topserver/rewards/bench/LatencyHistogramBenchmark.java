@@ -0,0 +1,63 @@
+package pl.topserver.rewards.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pl.topserver.rewards.stats.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LatencyHistogram}: record() z jednego i z wielu wątków (callbacki
+ * klienta HTTP zapisują do wspólnych histogramów) oraz odczyt percentyla
+ * dla /ts stats i bStats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyHistogramBenchmark {
+
+    private LatencyHistogram histogram;
+
+    @Setup
+    public void setup() {
+        histogram = new LatencyHistogram();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < 100_000; i++)
+            histogram.record(randomLatencyNanos(random));
+    }
+
+    /** Czasy od 1 ms do ~2 s, z długim ogonem jak w odpowiedziach API. */
+    private static long randomLatencyNanos(ThreadLocalRandom random) {
+        return (long) (1_000_000L * Math.exp(random.nextDouble() * 7.6));
+    }
+
+    @Benchmark
+    public void record() {
+        histogram.record(randomLatencyNanos(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histogram.record(randomLatencyNanos(ThreadLocalRandom.current()));
+    }
+
+    @Benchmark
+    public double percentile() {
+        return histogram.getPercentileMillis(99.0);
+    }
+}
@@ -0,0 +1,73 @@
+package pl.topserver.rewards.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bukkit.ChatColor;
+
+import pl.topserver.rewards.messages.Message;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Message}: składanie wiadomości z placeholderami przy każdym wysłaniu
+ * i kompilacja przy przeładowaniu configu. Dla porównania to samo przez
+ * translateAlternateColorCodes i łańcuch String.replace, jak przed kompilacją
+ * wiadomości.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBenchmark {
+
+    private static final String[] REPLACEMENTS = { "{player}", "Gracz", "{seconds}", "5", "{count}", "3",
+            "{server}", "TopServer.pl" };
+
+    /** Ile placeholderów ma wiadomość. */
+    @Param({"0", "1", "3"})
+    public int placeholders;
+
+    private String raw;
+    private Message message;
+
+    @Setup
+    public void setup() {
+        raw = switch (placeholders) {
+            case 0 -> "&eSprawdzam nagrody...";
+            case 1 -> "&cPoczekaj &e{seconds}s &cprzed kolejną próbą!";
+            case 3 -> "&e{player} &7odebrał &e{count} &7nagrody na &b{server}";
+            default -> throw new IllegalArgumentException(String.valueOf(placeholders));
+        };
+        message = Message.compile(raw);
+    }
+
+    @Benchmark
+    public String render() {
+        return message.render(REPLACEMENTS);
+    }
+
+    @Benchmark
+    public String replaceChain() {
+        String text = ChatColor.translateAlternateColorCodes('&', raw);
+        for (int i = 0; i + 1 < REPLACEMENTS.length; i += 2)
+            text = text.replace(REPLACEMENTS[i], REPLACEMENTS[i + 1]);
+        return text;
+    }
+
+    @Benchmark
+    public Message compile() {
+        return Message.compile(raw);
+    }
+}
@@ -0,0 +1,65 @@
+package pl.topserver.rewards.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import pl.topserver.rewards.rewards.RewardPlan;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * {@link RewardPlan#compile}: parsowanie listy itemów ("MATERIAL:ILOSC"),
+ * komend i kwoty przy starcie i przy każdym przeładowaniu configu.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RewardPlanBenchmark {
+
+    private static final String[] ITEMS = { "DIAMOND:5", "EMERALD:3", "GOLDEN_APPLE", "EXPERIENCE_BOTTLE:10",
+            "iron_ingot:32", "NETHERITE_SCRAP" };
+
+    /** Ile pozycji ma rewards.items.list (domyślny config ma 4). */
+    @Param({"4", "64"})
+    public int items;
+
+    private final Logger logger = Logger.getLogger("RewardPlanBenchmark");
+    private YamlConfiguration config;
+
+    @Setup
+    public void setup() {
+        List<String> list = new ArrayList<>(items);
+        for (int i = 0; i < items; i++)
+            list.add(ITEMS[i % ITEMS.length]);
+
+        config = new YamlConfiguration();
+        config.set("rewards.items.enabled", true);
+        config.set("rewards.items.list", list);
+        config.set("rewards.commands.enabled", true);
+        config.set("rewards.commands.list", List.of("give {player} diamond_sword 1", "eco give {player} 500"));
+        config.set("rewards.money.enabled", true);
+        config.set("rewards.money.amount", 100.0);
+    }
+
+    @Benchmark
+    public RewardPlan compile() {
+        return RewardPlan.compile(config, logger);
+    }
+}
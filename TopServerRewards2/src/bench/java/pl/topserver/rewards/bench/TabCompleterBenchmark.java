@@ -0,0 +1,57 @@
+package pl.topserver.rewards.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.InvalidDescriptionException;
+
+import pl.topserver.rewards.commands.TSTabCompleter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TSTabCompleter#onTabComplete} dla administratora (wszystkie
+ * podpowiedzi) — wołane przy każdym naciśnięciu klawisza w /ts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabCompleterBenchmark {
+
+    /** Wpisany początek argumentu: nic, jedna litera, dwie, brak dopasowania. */
+    @Param({"", "s", "st", "x"})
+    public String input;
+
+    private TSTabCompleter completer;
+    private Player sender;
+    private String[] args;
+
+    @Setup
+    public void setup() throws IOException, InvalidDescriptionException {
+        BenchPlugin plugin = BenchPlugin.create(Files.createTempDirectory("TabCompleterBenchmark").toFile());
+        completer = new TSTabCompleter(plugin);
+        sender = BenchPlugin.player("Admin");
+        args = new String[] { input };
+    }
+
+    @Benchmark
+    public List<String> complete() {
+        return completer.onTabComplete(sender, null, "ts", args);
+    }
+}
@@ -0,0 +1,358 @@
+package pl.topserver.rewards.bench;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import pl.topserver.rewards.stats.LatencyHistogram;
+import pl.topserver.rewards.vote.NegativeCheckCache;
+import pl.topserver.rewards.vote.VoteStatusCache;
+import pl.topserver.rewards.vote.VoteWebhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test obciążeniowy {@link VoteWebhook} z lokalnym nadawcą.
+ * <p>
+ * Webhook jest uruchamiany z configu w katalogu tymczasowym na localhost.
+ * Kilkudziesięciu nadawców naraz wysyła podpisane powiadomienia o głosach,
+ * a kilku powolnych wysyła nagłówki i potem treść po bajcie na sekundę.
+ * Plugin nie jest włączony, więc przyjęty głos nie trafia na główny wątek —
+ * mierzona jest sama obsługa HTTP: podpis, dekodowanie i pamięć powtórzeń.
+ * <p>
+ * Raport: przepustowość, kody odpowiedzi (204 i 503 przy przeciążeniu),
+ * percentyle czasu odpowiedzi i czas, po którym webhook zamyka powolne
+ * połączenia. Kod wyjścia to 1, gdy przyszła inna odpowiedź niż 204 albo 503,
+ * p99 przekracza próg, albo powolne połączenie nie zostało zamknięte po
+ * request-timeout-ms.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Dbench.main=pl.topserver.rewards.bench.VoteWebhookLoadTest \
+ *     -Dbench.args="requests=50000 senders=128 threads=2 slow-senders=16"
+ * </pre>
+ * Argumenty mają postać klucz=wartość, domyślne wartości są w {@link #DEFAULTS}.
+ */
+public final class VoteWebhookLoadTest {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        // Obciążenie
+        DEFAULTS.put("requests", "20000");
+        DEFAULTS.put("warmup", "2000");
+        DEFAULTS.put("senders", "64");
+        DEFAULTS.put("slow-senders", "8");
+        // Ustawienia webhooka jak w config.yml
+        DEFAULTS.put("threads", "2");
+        DEFAULTS.put("request-timeout-ms", "2000");
+        // Progi (0 = bez progu)
+        DEFAULTS.put("max-p99-ms", "500");
+        DEFAULTS.put("timeout-seconds", "300");
+    }
+
+    private static final String SECRET = "vote-webhook-load-test";
+    private static final String PATH = "/topserver/vote";
+
+    private final Map<String, String> options;
+    private final Path dataFolder;
+    private final VoteWebhook webhook;
+    private final URI uri;
+    private final HttpClient client;
+    private final ExecutorService senders;
+    private long sequence;
+
+    private VoteWebhookLoadTest(Map<String, String> options) throws Exception {
+        this.options = options;
+        this.dataFolder = Files.createTempDirectory("VoteWebhookLoadTest");
+        int port = freePort();
+
+        YamlConfiguration config = BenchPlugin.defaultConfig();
+        config.set("vote-webhook.enabled", true);
+        config.set("vote-webhook.host", "127.0.0.1");
+        config.set("vote-webhook.port", port);
+        config.set("vote-webhook.path", PATH);
+        config.set("vote-webhook.secret", SECRET);
+        config.set("vote-webhook.auto-claim", false);
+        config.set("vote-webhook.threads", intOption("threads"));
+        config.set("vote-webhook.request-timeout-ms", intOption("request-timeout-ms"));
+        config.save(dataFolder.resolve("config.yml").toFile());
+
+        BenchPlugin plugin = BenchPlugin.create(dataFolder.toFile());
+        this.webhook = new VoteWebhook(plugin, new VoteStatusCache(120_000L), new NegativeCheckCache(10_000L, 1000));
+        webhook.start();
+        this.uri = URI.create("http://127.0.0.1:" + port + PATH);
+
+        this.senders = Executors.newFixedThreadPool(intOption("senders"), runnable -> {
+            Thread thread = new Thread(runnable, "VoteWebhookLoadTest-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(senders)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                System.err.println("Nieznany argument: " + arg + " (dostepne: " + DEFAULTS.keySet() + ")");
+                System.exit(2);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        VoteWebhookLoadTest test = new VoteWebhookLoadTest(options);
+        int exitCode;
+        try {
+            exitCode = test.run();
+        } finally {
+            test.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private int run() throws Exception {
+        System.out.println("Ustawienia: " + options);
+
+        int warmup = intOption("warmup");
+        if (warmup > 0) {
+            Result result = drive(warmup, new LatencyHistogram());
+            System.out.printf("Rozgrzewka: %d zadan w %.1f s%n", warmup, result.elapsedNanos / 1e9);
+        }
+
+        // Powolni nadawcy zajmują wątki webhooka w trakcie pomiaru
+        int slowCount = intOption("slow-senders");
+        List<SlowSender> slow = new ArrayList<>(slowCount);
+        for (int i = 0; i < slowCount; i++)
+            slow.add(new SlowSender(i));
+        slow.forEach(SlowSender::start);
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long rejectedBefore = webhook.getRejectedCount();
+        int requests = intOption("requests");
+        Result result = drive(requests, latency);
+
+        long timeoutMillis = intOption("request-timeout-ms");
+        for (SlowSender sender : slow)
+            sender.thread.join((slowCount + 1L) * timeoutMillis + 5000L);
+
+        double seconds = result.elapsedNanos / 1e9;
+        System.out.printf("Zadania: %d w %.2f s, %.0f/s%n", result.finished(), seconds, result.finished() / seconds);
+        System.out.println("  odpowiedzi: " + result.statuses);
+        System.out.printf("  odrzucone przez webhook (503): %d, bledy polaczenia: %d%n",
+                webhook.getRejectedCount() - rejectedBefore, result.connectionErrors.get());
+        System.out.printf("  czas odpowiedzi: p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                latency.getPercentileMillis(50.0), latency.getPercentileMillis(95.0),
+                latency.getPercentileMillis(99.0), latency.getMaxMillis());
+
+        List<String> failures = new ArrayList<>();
+        if (result.finished() < requests)
+            failures.add("niezakonczone zadania: " + (requests - result.finished()));
+        result.statuses.forEach((status, count) -> {
+            if (status != 204 && status != 503)
+                failures.add("odpowiedz " + status + ": " + count.get());
+        });
+        double p99 = latency.getPercentileMillis(99.0);
+        double maxP99 = doubleOption("max-p99-ms");
+        if (maxP99 > 0 && p99 > maxP99)
+            failures.add(String.format("p99 %.1f ms > %.0f ms", p99, maxP99));
+
+        if (!slow.isEmpty()) {
+            long maxClosed = 0;
+            for (SlowSender sender : slow) {
+                if (sender.closedAfterMillis < 0)
+                    failures.add("powolne polaczenie " + sender.id + " nie zostalo zamkniete");
+                maxClosed = Math.max(maxClosed, sender.closedAfterMillis);
+            }
+            System.out.printf("  powolni nadawcy: %d, zamkniete najpozniej po %d ms, przerwane przez webhook: %d%n",
+                    slow.size(), maxClosed, webhook.getTimedOutCount());
+            // Limit liczy się od wzięcia żądania przez wątek, więc powolni nadawcy
+            // ponad liczbę wątków czekają w kolejce na swoją turę. Zapas na
+            // sekundę między bajtami i na start wątku stróża.
+            int threads = intOption("threads");
+            long limit = (slow.size() + threads - 1) / threads * timeoutMillis + 1500L;
+            if (maxClosed > limit)
+                failures.add("powolne polaczenie otwarte " + maxClosed + " ms > " + limit + " ms");
+        }
+
+        if (failures.isEmpty()) {
+            System.out.println("OK");
+            return 0;
+        }
+        for (String failure : failures)
+            System.out.println("PRZEKROCZONO: " + failure);
+        return 1;
+    }
+
+    /**
+     * Wysyła {@code requests} podpisanych powiadomień, najwyżej {@code senders} naraz.
+     */
+    private Result drive(int requests, LatencyHistogram latency) throws InterruptedException {
+        Result result = new Result();
+        Semaphore inFlight = new Semaphore(intOption("senders"));
+        CountDownLatch done = new CountDownLatch(requests);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            long n = sequence++;
+            long sentAt = System.nanoTime();
+            client.sendAsync(signed(n), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                if (error != null) {
+                    result.connectionErrors.incrementAndGet();
+                } else {
+                    latency.record(System.nanoTime() - sentAt);
+                    result.statuses.computeIfAbsent(response.statusCode(), status -> new AtomicLong())
+                            .incrementAndGet();
+                }
+                inFlight.release();
+                done.countDown();
+            });
+        }
+
+        if (!done.await(intOption("timeout-seconds"), TimeUnit.SECONDS))
+            System.out.println("Przekroczono timeout-seconds, czekajac na " + done.getCount() + " zadan");
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private HttpRequest signed(long voteId) {
+        byte[] body = ApiPayloads.utf8(ApiPayloads.vote("Gracz" + voteId, voteId));
+        String timestamp = Long.toString(System.currentTimeMillis() / 1000L);
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("X-TopServer-Timestamp", timestamp)
+                .header("X-TopServer-Signature", sign(timestamp, body))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+    }
+
+    private static String sign(String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update(timestamp.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) '.');
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void close() {
+        webhook.stop();
+        senders.shutdownNow();
+        try {
+            Files.deleteIfExists(dataFolder.resolve("config.yml"));
+            Files.deleteIfExists(dataFolder);
+        } catch (IOException e) {
+            System.out.println("Nie udalo sie usunac " + dataFolder + ": " + e.getMessage());
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private int intOption(String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    private double doubleOption(String key) {
+        return Double.parseDouble(options.get(key));
+    }
+
+    private static final class Result {
+        final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        final AtomicLong connectionErrors = new AtomicLong();
+        long elapsedNanos;
+
+        long finished() {
+            long total = connectionErrors.get();
+            for (AtomicLong counter : statuses.values())
+                total += counter.get();
+            return total;
+        }
+    }
+
+    /**
+     * Nadawca, który wysyła nagłówki z Content-Length i potem treść po bajcie
+     * na sekundę. Mierzy, po jakim czasie webhook zamknie połączenie.
+     */
+    private final class SlowSender implements Runnable {
+
+        final int id;
+        final Thread thread;
+        volatile long closedAfterMillis = -1;
+
+        SlowSender(int id) {
+            this.id = id;
+            this.thread = new Thread(this, "VoteWebhookLoadTest-slow-" + id);
+            thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            byte[] body = ApiPayloads.utf8(ApiPayloads.vote("Wolny" + id, id));
+            long start = System.nanoTime();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), uri.getPort())) {
+                OutputStream out = socket.getOutputStream();
+                out.write(("POST " + PATH + " HTTP/1.1\r\nHost: 127.0.0.1\r\nContent-Type: application/json\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                InputStream in = socket.getInputStream();
+                socket.setSoTimeout(1000);
+                for (byte b : body) {
+                    out.write(b);
+                    out.flush();
+                    try {
+                        // Odpowiedź albo koniec strumienia kończą pomiar
+                        in.read();
+                        break;
+                    } catch (SocketTimeoutException e) {
+                        // Serwer dalej czeka na treść
+                    }
+                }
+            } catch (IOException e) {
+                // Zamknięte przez webhook w trakcie zapisu
+            }
+            closedAfterMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+}
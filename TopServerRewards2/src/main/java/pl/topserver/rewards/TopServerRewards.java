@@ -2,42 +2,95 @@ package pl.topserver.rewards;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
-import org.bukkit.Material;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.PluginCommand;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
 import org.bstats.bukkit.Metrics;
-
+import org.bstats.charts.SimplePie;
+
+import pl.topserver.rewards.api.ApiResponse;
+import pl.topserver.rewards.api.CircuitOpenException;
+import pl.topserver.rewards.api.TopServerApi;
+import pl.topserver.rewards.claim.ClaimExecutor;
+import pl.topserver.rewards.claim.ClaimJournal;
+import pl.topserver.rewards.claim.ClaimLedger;
+import pl.topserver.rewards.claim.ClaimState;
+import pl.topserver.rewards.claim.ClaimTracker;
+import pl.topserver.rewards.claim.CooldownStore;
+import pl.topserver.rewards.claim.JdbcClaimLedger;
+import pl.topserver.rewards.claim.PendingRewards;
 import pl.topserver.rewards.commands.ReloadCommand;
+import pl.topserver.rewards.commands.StatsCommand;
+import pl.topserver.rewards.commands.StatusCommand;
 import pl.topserver.rewards.commands.TSTabCompleter;
+import pl.topserver.rewards.config.ConfigWatcher;
+import pl.topserver.rewards.config.PluginSettings;
+import pl.topserver.rewards.messages.MessageCatalog;
+import pl.topserver.rewards.rewards.BroadcastAggregator;
+import pl.topserver.rewards.rewards.DeliveryScheduler;
+import pl.topserver.rewards.rewards.RewardPlan;
+import pl.topserver.rewards.stats.ClaimStats;
 import pl.topserver.rewards.updater.ConfigUpdater;
 import pl.topserver.rewards.updater.UpdateChecker;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import pl.topserver.rewards.vote.JoinPrefetcher;
+import pl.topserver.rewards.vote.NegativeCheckCache;
+import pl.topserver.rewards.vote.VotePoller;
+import pl.topserver.rewards.vote.VoteStatus;
+import pl.topserver.rewards.vote.VoteStatusCache;
+import pl.topserver.rewards.vote.VoteWebhook;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 public class TopServerRewards extends JavaPlugin {
 
-    private String apiUrl;
-    private String serverIp;
-    private Map<UUID, Long> cooldowns = new HashMap<>();
+    private volatile PluginSettings settings;
+    private volatile TopServerApi api;
+    private final CooldownStore cooldowns = new CooldownStore(5000L);
+    private final ClaimTracker claimTracker = new ClaimTracker();
+    private ClaimExecutor claimExecutor;
+    private ClaimJournal claimJournal = ClaimJournal.disabled();
+    private ClaimLedger claimLedger = ClaimLedger.local();
+    private PendingRewards pendingRewards;
+    private DeliveryScheduler deliveryScheduler;
+    private final BroadcastAggregator broadcasts = new BroadcastAggregator(this);
     private ReloadCommand reloadCommand;
+    private StatusCommand statusCommand;
+    private StatsCommand statsCommand;
+    private final ClaimStats stats = new ClaimStats();
     private UpdateChecker updateChecker;
-    private static final long COOLDOWN_TIME = 5000;
+    private final VoteStatusCache voteStatusCache = new VoteStatusCache(120_000L);
+    private final NegativeCheckCache negativeCheckCache = new NegativeCheckCache(10_000L, 1000);
+    private VotePoller votePoller;
+    private ConfigWatcher configWatcher;
+    private VoteWebhook voteWebhook;
+    private JoinPrefetcher joinPrefetcher;
+
+    public TopServerRewards() {
+    }
+
+    /**
+     * Uruchomienie poza serwerem (test obciążeniowy) — Bukkit używa konstruktora bez argumentów.
+     */
+    protected TopServerRewards(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder,
+            File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
@@ -47,11 +100,38 @@ public class TopServerRewards extends JavaPlugin {
 
         loadConfigValues();
 
+        // Dziennik odbieranych nagród — po awarii wydajemy to, co API już oznaczyło jako odebrane
+        if (getConfig().getBoolean("claim-journal.enabled", true)) {
+            claimJournal = ClaimJournal.open(new File(getDataFolder(), "claims.journal"),
+                    getConfig().getLong("claim-journal.flush-delay-ms", 5), getLogger());
+        }
+        // Wspólny rejestr odbierań, gdy kilka serwerów za proxy ma tych samych graczy
+        if (getConfig().getString("claim-ledger.type", "local").equalsIgnoreCase("jdbc")) {
+            String node = getConfig().getString("claim-ledger.node", "");
+            claimLedger = JdbcClaimLedger.open(getConfig().getString("claim-ledger.url", ""),
+                    getConfig().getString("claim-ledger.user", ""),
+                    getConfig().getString("claim-ledger.password", ""),
+                    getConfig().getString("claim-ledger.table", "topserver_claims"),
+                    node.isEmpty() ? UUID.randomUUID().toString().substring(0, 8) : node,
+                    Math.max(5, getConfig().getInt("claim-ledger.lease-seconds", 30)) * 1000L,
+                    getConfig().getLong("claim-ledger.flush-delay-ms", 200), getLogger());
+        }
+        claimTracker.setFinishListener(claimLedger::release);
+
+        deliveryScheduler.start();
+        pendingRewards = new PendingRewards(this, this::reconcile);
+        pendingRewards.setJoinDelaySeconds(settings.getPendingJoinDelaySeconds());
+        pendingRewards.start(claimJournal.getPending());
+
         // bStats metrics
         int pluginId = 29789;
-        new Metrics(this, pluginId);
+        Metrics metrics = new Metrics(this, pluginId);
+        metrics.addCustomChart(new SimplePie("api_circuit_state", () -> api.getCircuitBreaker().getState().name()));
+        metrics.addCustomChart(new SimplePie("api_error_rate", this::apiErrorRateBucket));
 
         reloadCommand = new ReloadCommand(this);
+        statusCommand = new StatusCommand(this);
+        statsCommand = new StatsCommand(this);
 
         PluginCommand tsCmd = getCommand("ts");
         if (tsCmd != null) {
@@ -63,8 +143,29 @@ public class TopServerRewards extends JavaPlugin {
         updateChecker = new UpdateChecker(this);
         updateChecker.start();
 
+        // Okresowe sprawdzanie głosów graczy online
+        votePoller = new VotePoller(this, voteStatusCache, negativeCheckCache);
+        votePoller.start();
+
+        // Sprawdzanie głosu zaraz po wejściu gracza
+        joinPrefetcher = new JoinPrefetcher(this, voteStatusCache, negativeCheckCache);
+        joinPrefetcher.start();
+
+        // Powiadomienia o głosach wysyłane przez TopServer.pl
+        voteWebhook = new VoteWebhook(this, voteStatusCache, negativeCheckCache);
+        voteWebhook.start();
+
+        // Automatyczne przeładowanie po zmianie config.yml
+        if (getConfig().getBoolean("config-watcher.enabled", false)) {
+            configWatcher = new ConfigWatcher(this, getConfig().getLong("config-watcher.debounce-ms", 1000),
+                    this::onConfigFileChanged);
+            configWatcher.start();
+        }
+
+        PluginSettings settings = this.settings;
+        String serverIp = settings.getServerIp();
         getLogger().info("TopServerRewards zostal wlaczony!");
-        getLogger().info("API URL: " + apiUrl);
+        getLogger().info("API URL: " + settings.getApiUrl());
         getLogger().info("Server IP: " + (serverIp.isEmpty() ? "NIE USTAWIONY!" : serverIp));
 
         if (serverIp.isEmpty()) {
@@ -74,14 +175,68 @@ public class TopServerRewards extends JavaPlugin {
             getLogger().warning("========================================");
         }
 
-        if (!getConfig().getBoolean("rewards.enabled", true)) {
+        if (!settings.getRewardPlan().isEnabled()) {
             getLogger().warning("Nagrody sa WYLACZONE w config.yml!");
         }
     }
 
     private void loadConfigValues() {
-        apiUrl = getConfig().getString("api-url", "https://topserver.pl/api_rewards.php");
-        serverIp = getConfig().getString("server-ip", "");
+        applySettings(PluginSettings.load(getConfig(), getLogger()));
+    }
+
+    /**
+     * Stosuje nową migawkę ustawień. Wywoływane na głównym wątku.
+     */
+    private void applySettings(PluginSettings newSettings) {
+        if (claimExecutor == null) {
+            claimExecutor = ClaimExecutor.create(newSettings.isVirtualThreads(), newSettings.getClaimThreads(),
+                    newSettings.getMaxConcurrentClaims(), newSettings.getClaimQueueSize(), getLogger());
+        } else {
+            claimExecutor.setLimits(newSettings.getMaxConcurrentClaims(), newSettings.getClaimQueueSize());
+        }
+
+        negativeCheckCache.configure(newSettings.getNoRewardCacheTtlMillis(), newSettings.getNoRewardCacheMaxSize());
+        cooldowns.setCooldownMillis(newSettings.getClaimCooldownMillis());
+        if (deliveryScheduler == null)
+            deliveryScheduler = new DeliveryScheduler(this, newSettings.getDeliveryTickBudgetMillis());
+        else
+            deliveryScheduler.setBudgetMillis(newSettings.getDeliveryTickBudgetMillis());
+        broadcasts.configure(newSettings.getBroadcastWindowSeconds(), newSettings.getBroadcastMaxNames());
+        if (pendingRewards != null)
+            pendingRewards.setJoinDelaySeconds(newSettings.getPendingJoinDelaySeconds());
+
+        TopServerApi current = api;
+        if (current == null || !current.getApiUrl().equals(newSettings.getApiUrl())) {
+            api = new TopServerApi(newSettings.getApiUrl(), newSettings.getServerIp(),
+                    newSettings.newCircuitBreaker(), newSettings.newTimeout(), stats, claimExecutor);
+        } else {
+            // Ten sam adres API: zostają połączenia HTTP, stan bezpiecznika i wyuczony limit czasu
+            api = current.reconfigure(newSettings.getServerIp(),
+                    settings.sameCircuitBreaker(newSettings) ? current.getCircuitBreaker()
+                            : newSettings.newCircuitBreaker(),
+                    settings.sameTimeout(newSettings) ? current.getTimeout() : newSettings.newTimeout());
+        }
+        settings = newSettings;
+    }
+
+    /**
+     * Odsetek błędów API w przedziałach — do wykresu bStats. Błędy liczy
+     * {@link TopServerApi} dla każdego zapytania, więc dzielimy przez wszystkie
+     * wysłane zapytania, nie tylko check i claim graczy.
+     */
+    private String apiErrorRateBucket() {
+        long errors = stats.getApiErrors();
+        long total = stats.getApiRequests();
+        if (total == 0)
+            return "brak zapytan";
+        long rate = errors * 100 / total;
+        if (rate == 0)
+            return "0%";
+        if (rate < 5)
+            return "1-4%";
+        if (rate < 25)
+            return "5-24%";
+        return "25%+";
     }
 
     /**
@@ -91,37 +246,96 @@ public class TopServerRewards extends JavaPlugin {
     public void reloadPluginConfig() {
         reloadConfig();
         loadConfigValues();
+        onSettingsReloaded();
+    }
+
+    private void onConfigFileChanged(PluginSettings newSettings) {
+        applySettings(newSettings);
+        onSettingsReloaded();
+    }
+
+    private void onSettingsReloaded() {
+        voteStatusCache.clear();
+        negativeCheckCache.clear();
+        if (votePoller != null) {
+            votePoller.stop();
+            votePoller.start();
+        }
         getLogger().info("Konfiguracja zostala przeladowana.");
     }
 
     @Override
     public void onDisable() {
+        if (configWatcher != null) {
+            configWatcher.stop();
+        }
+        if (voteWebhook != null) {
+            voteWebhook.stop();
+        }
+        if (votePoller != null) {
+            votePoller.stop();
+        }
+        if (joinPrefetcher != null) {
+            joinPrefetcher.stop();
+        }
         if (updateChecker != null) {
             updateChecker.stop();
         }
+        if (pendingRewards != null) {
+            pendingRewards.stop();
+        }
+        if (deliveryScheduler != null) {
+            deliveryScheduler.stop();
+        }
+        broadcasts.flush();
+        if (claimExecutor != null) {
+            claimExecutor.shutdown();
+        }
+        claimJournal.close();
+        claimLedger.close();
         getLogger().info("TopServerRewards zostal wylaczony!");
     }
 
-    private String msg(String path) {
-        String raw = getConfig().getString(path, "");
-        if (raw == null || raw.isEmpty() || raw.equalsIgnoreCase("false"))
-            return null;
-        return ChatColor.translateAlternateColorCodes('&', raw);
+    public TopServerApi getApi() {
+        return api;
     }
 
-    private void send(Player player, String path) {
-        String m = msg(path);
-        if (m != null)
-            player.sendMessage(m);
+    public ClaimTracker getClaimTracker() {
+        return claimTracker;
+    }
+
+    public ClaimExecutor getClaimExecutor() {
+        return claimExecutor;
+    }
+
+    public ClaimStats getStats() {
+        return stats;
+    }
+
+    public DeliveryScheduler getDeliveryScheduler() {
+        return deliveryScheduler;
+    }
+
+    public PluginSettings getSettings() {
+        return settings;
+    }
+
+    public MessageCatalog getMessages() {
+        return settings.getMessages();
     }
 
     private void send(Player player, String path, String... replacements) {
-        String m = msg(path);
-        if (m == null)
-            return;
-        for (int i = 0; i + 1 < replacements.length; i += 2)
-            m = m.replace(replacements[i], replacements[i + 1]);
-        player.sendMessage(m);
+        settings.getMessages().get(path).send(player, replacements);
+    }
+
+    /**
+     * Wysyła wiadomość graczowi, jeśli nadal jest online. Do użycia w wątkach
+     * odbierania, które nie trzymają obiektu Player.
+     */
+    private void send(UUID playerId, String path, String... replacements) {
+        Player player = Bukkit.getPlayer(playerId);
+        if (player != null)
+            settings.getMessages().get(path).send(player, replacements);
     }
 
     @Override
@@ -134,6 +348,16 @@ public class TopServerRewards extends JavaPlugin {
             return true;
         }
 
+        if (args.length > 0 && args[0].equalsIgnoreCase("status")) {
+            statusCommand.execute(sender);
+            return true;
+        }
+
+        if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            statsCommand.execute(sender);
+            return true;
+        }
+
         if (!(sender instanceof Player)) {
             sender.sendMessage(ChatColor.RED + "Ta komenda moze byc uzyta tylko przez gracza!");
             return true;
@@ -146,8 +370,7 @@ public class TopServerRewards extends JavaPlugin {
             return true;
         }
 
-        String claimSub = getConfig().getString("commands.claim-sub", "odbierz");
-        if (args[0].equalsIgnoreCase(claimSub)) {
+        if (args[0].equalsIgnoreCase(settings.getClaimSub())) {
             claimReward(player);
         } else {
             showHelp(player);
@@ -156,8 +379,9 @@ public class TopServerRewards extends JavaPlugin {
     }
 
     private void showHelp(Player player) {
-        String mainCmd = getConfig().getString("commands.main", "ts");
-        String claimSub = getConfig().getString("commands.claim-sub", "odbierz");
+        PluginSettings settings = this.settings;
+        String mainCmd = settings.getMainCommand();
+        String claimSub = settings.getClaimSub();
 
         send(player, "messages.help.line-top");
         send(player, "messages.help.title");
@@ -167,157 +391,506 @@ public class TopServerRewards extends JavaPlugin {
         send(player, "messages.help.line-bottom");
     }
 
-    private void claimReward(Player player) {
+    public void claimReward(Player player) {
         if (!player.hasPermission("topserver.claim")) {
             send(player, "messages.no-permission");
             return;
         }
 
         UUID playerId = player.getUniqueId();
-        long currentTime = System.currentTimeMillis();
 
-        if (cooldowns.containsKey(playerId)) {
-            long lastUse = cooldowns.get(playerId);
-            if (currentTime - lastUse < COOLDOWN_TIME) {
-                long timeLeft = (COOLDOWN_TIME - (currentTime - lastUse)) / 1000;
-                send(player, "messages.cooldown", "{seconds}", String.valueOf(timeLeft));
-                return;
-            }
+        // Jedno odbieranie na gracza — druga próba w trakcie pierwszej jest odrzucana
+        ClaimTracker.Ticket ticket = claimTracker.begin(playerId, ClaimState.CHECKING);
+        if (ticket == null) {
+            send(player, "messages.claim-in-progress");
+            return;
         }
 
-        cooldowns.put(playerId, currentTime);
+        long timeLeftMillis = cooldowns.tryAcquire(playerId, System.currentTimeMillis());
+        if (timeLeftMillis > 0) {
+            ticket.finish();
+            send(player, "messages.cooldown", "{seconds}", String.valueOf(timeLeftMillis / 1000));
+            return;
+        }
 
-        if (serverIp.isEmpty()) {
+        if (settings.getServerIp().isEmpty()) {
+            ticket.finish();
             send(player, "messages.config-error");
             send(player, "messages.config-error-hint");
             return;
         }
 
+        // Poller, prefetch albo webhook mógł już znaleźć głos — wtedy pomijamy zapytanie check.
+        // Niepełna lista (webhook) wystarcza tylko, gdy odbieramy po jednym głosie.
+        VoteStatus status = voteStatusCache.take(playerId);
+        VoteStatus cached = status != null && (status.isComplete() || settings.getClaimAllMaxVotes() == 1)
+                ? status
+                : null;
+
+        // Niedawne "brak nagrody" z API — odpowiadamy bez kolejnego zapytania
+        String cachedNoReward = cached == null ? negativeCheckCache.get(playerId) : null;
+        if (cachedNoReward != null) {
+            ticket.finish();
+            stats.countNoReward();
+            send(player, "messages.no-reward", "{api_message}", cachedNoReward);
+            send(player, "messages.no-reward-hint");
+            return;
+        }
+
         send(player, "messages.checking");
 
-        Bukkit.getScheduler().runTaskAsynchronously(this, () -> {
-            try {
-                String playerName = player.getName();
+        String playerName = player.getName();
+        TopServerApi api = this.api;
+
+        // Odbieranie idzie na własnej, ograniczonej puli — przy pełnej kolejce odrzucamy.
+        // Wątki odbierania znają tylko UUID i nick; gracz może w tym czasie wyjść.
+        boolean accepted = claimExecutor.submit(() -> {
+            // Ten sam gracz na innym serwerze sieci — rejestr pilnuje cooldownu i dzierżawy
+            long ledgerWait = claimLedger.tryAcquire(playerId, System.currentTimeMillis(),
+                    settings.getClaimCooldownMillis());
+            CompletableFuture<Void> pipeline;
+            if (ledgerWait != 0) {
+                if (cached != null)
+                    voteStatusCache.put(playerId, cached);
+                if (ledgerWait == ClaimLedger.IN_PROGRESS)
+                    send(playerId, "messages.claim-in-progress");
+                else
+                    send(playerId, "messages.cooldown", "{seconds}", String.valueOf(ledgerWait / 1000));
+                pipeline = CompletableFuture.completedFuture(null);
+            } else if (cached != null) {
+                ticket.advance(ClaimState.CHECKING, ClaimState.CLAIMING);
+                pipeline = claimPending(playerId, playerName, api, ticket, cached.getVotes());
+            } else {
+                pipeline = api.check(playerName).thenCompose(
+                        checkResponse -> handleCheckResponse(playerId, playerName, api, ticket, checkResponse));
+            }
 
-                JSONObject checkResponse = makeApiRequest("check", playerName, null);
-                if (checkResponse == null) {
-                    send(player, "messages.api-error");
-                    send(player, "messages.api-error-hint");
-                    return;
-                }
+            return pipeline
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        if (cause instanceof CircuitOpenException) {
+                            stats.countRejection();
+                            send(playerId, "messages.api-unavailable", "{seconds}",
+                                    String.valueOf(api.getCircuitBreaker().getRemainingOpenSeconds()));
+                            return null;
+                        }
+                        if (cause instanceof IOException) {
+                            // Timeout, zerwane połączenie, niepoprawny JSON — znany problem z API, bez stack trace
+                            send(playerId, "messages.api-error");
+                            send(playerId, "messages.api-error-hint");
+                            getLogger().warning("Blad API podczas odbierania nagrody dla " + playerName + ": "
+                                    + cause);
+                            return null;
+                        }
+                        send(playerId, "messages.unexpected-error");
+                        getLogger().severe("Blad podczas odbierania nagrody dla " + playerName + ": "
+                                + cause.getMessage());
+                        cause.printStackTrace();
+                        return null;
+                    })
+                    .thenRun(() -> {
+                        // Wydanie nagrody na głównym wątku samo zamyka bilet
+                        if (ticket.getState() != ClaimState.DELIVERING)
+                            ticket.finish();
+                    });
+        });
 
-                boolean success = (boolean) checkResponse.get("success");
-                if (!success) {
-                    String error = (String) checkResponse.getOrDefault("error", "Nieznany blad");
-                    send(player, "messages.api-fail", "{error}", error);
-                    return;
-                }
+        if (!accepted) {
+            ticket.finish();
+            stats.countRejection();
+            send(player, "messages.server-busy");
+        }
+    }
 
-                boolean hasReward = (boolean) checkResponse.getOrDefault("has_reward", false);
-                if (!hasReward) {
-                    String apiMessage = (String) checkResponse.getOrDefault("message", "");
-                    String noRewardMsg = msg("messages.no-reward");
-                    if (noRewardMsg != null)
-                        player.sendMessage(noRewardMsg.replace("{api_message}", apiMessage));
-                    send(player, "messages.no-reward-hint");
-                    return;
-                }
+    private CompletableFuture<Void> handleCheckResponse(UUID playerId, String playerName, TopServerApi api,
+            ClaimTracker.Ticket ticket, ApiResponse checkResponse) {
+        if (checkResponse == null) {
+            send(playerId, "messages.api-error");
+            send(playerId, "messages.api-error-hint");
+            return CompletableFuture.completedFuture(null);
+        }
 
-                long voteId = ((Number) checkResponse.get("vote_id")).longValue();
-                String serverName = (String) checkResponse.get("server_name");
+        if (!checkResponse.success()) {
+            send(playerId, "messages.api-fail", "{error}", checkResponse.errorOrDefault());
+            return CompletableFuture.completedFuture(null);
+        }
 
-                JSONObject claimResponse = makeApiRequest("claim", playerName, voteId);
-                if (claimResponse == null) {
-                    send(player, "messages.claim-error");
-                    return;
-                }
+        if (!checkResponse.hasReward()) {
+            String apiMessage = checkResponse.messageOrEmpty();
+            negativeCheckCache.put(playerId, apiMessage);
+            stats.countNoReward();
+            send(playerId, "messages.no-reward", "{api_message}", apiMessage);
+            send(playerId, "messages.no-reward-hint");
+            return CompletableFuture.completedFuture(null);
+        }
 
-                boolean claimSuccess = (boolean) claimResponse.get("success");
+        List<ApiResponse> votes = checkResponse.pendingVotes();
+        if (votes.isEmpty()) {
+            // has_reward bez vote_id i bez listy głosów — nie ma czego odebrać.
+            // Bez zapisu w negativeCheckCache: kolejna próba zapyta API od nowa.
+            getLogger().warning("API zwrocilo has_reward bez vote_id dla " + playerName + " - brak nagrody.");
+            String apiMessage = checkResponse.messageOrEmpty();
+            stats.countNoReward();
+            send(playerId, "messages.no-reward", "{api_message}", apiMessage);
+            send(playerId, "messages.no-reward-hint");
+            return CompletableFuture.completedFuture(null);
+        }
 
-                if (claimSuccess) {
-                    Bukkit.getScheduler().runTask(this, () -> {
-                        giveRewards(player);
+        ticket.advance(ClaimState.CHECKING, ClaimState.CLAIMING);
+        return claimPending(playerId, playerName, api, ticket, votes);
+    }
 
-                        send(player, "messages.claimed.line-top");
-                        send(player, "messages.claimed.success");
-                        send(player, "messages.claimed.server", "{server}", serverName);
-                        send(player, "messages.claimed.thanks");
-                        send(player, "messages.claimed.line-bottom");
+    private CompletableFuture<Void> claimPending(UUID playerId, String playerName, TopServerApi api,
+            ClaimTracker.Ticket ticket, List<ApiResponse> votes) {
+        if (votes.size() == 1) {
+            ApiResponse vote = votes.get(0);
+            return claimVote(playerId, playerName, api, ticket, vote.voteId(), vote.serverName());
+        }
 
-                        if (getConfig().getBoolean("rewards.broadcast", true)) {
-                            String broadcastMsg = msg("messages.broadcast");
-                            if (broadcastMsg != null)
-                                Bukkit.broadcastMessage(broadcastMsg.replace("{player}", player.getName()));
-                        }
-                    });
-                } else {
-                    String error = (String) claimResponse.getOrDefault("error", "Nieznany blad");
-                    send(player, "messages.claim-fail", "{error}", error);
-                }
+        int maxVotes = settings.getClaimAllMaxVotes();
+        return claimVotes(playerId, playerName, api, ticket,
+                votes.size() > maxVotes ? votes.subList(0, maxVotes) : votes);
+    }
+
+    /**
+     * Odbiera kilka głosów naraz. Zapytania claim idą równolegle w kilku
+     * "torach" (claim-all.parallel), każdy tor po kolei — przy HTTP/2 wszystkie
+     * dzielą jedno połączenie. Odebrane głosy są wydawane jednym zadaniem na
+     * głównym wątku. Jeśli część zapytań się nie powiodła, gracz dostaje przy
+     * wydaniu informację, ile z ilu głosów odebrano — pozostałe nadal czekają
+     * w API i odbierze je kolejną komendą.
+     */
+    private CompletableFuture<Void> claimVotes(UUID playerId, String playerName, TopServerApi api,
+            ClaimTracker.Ticket ticket, List<ApiResponse> votes) {
+        ClaimJournal journal = this.claimJournal;
+        List<ApiResponse> claimed = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Object> firstFailure = new AtomicReference<>();
+
+        int lanes = Math.min(votes.size(), settings.getClaimAllParallel());
+        CompletableFuture<?>[] laneFutures = new CompletableFuture<?>[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int i = lane; i < votes.size(); i += lanes) {
+                ApiResponse vote = votes.get(i);
+                chain = chain.thenCompose(previous -> claimOne(playerId, playerName, api, journal, vote.voteId(),
+                        vote.serverName())
+                        .handle((claimResponse, e) -> {
+                            if (e == null && claimResponse != null && claimResponse.success()) {
+                                stats.countSuccess();
+                                claimed.add(vote);
+                            } else if (e != null || claimResponse != null) {
+                                firstFailure.compareAndSet(null, e != null ? e : claimResponse);
+                            }
+                            return null;
+                        }));
+            }
+            laneFutures[lane] = chain;
+        }
 
-            } catch (Exception e) {
-                send(player, "messages.unexpected-error");
-                getLogger().severe("Blad podczas odbierania nagrody dla " + player.getName() + ": " + e.getMessage());
-                e.printStackTrace();
+        return CompletableFuture.allOf(laneFutures).thenRun(() -> {
+            if (!claimed.isEmpty()) {
+                int failed = votes.size() - claimed.size();
+                if (failed > 0)
+                    getLogger().warning("Odebrano " + claimed.size() + " z " + votes.size() + " glosow gracza "
+                            + playerName + ", pierwszy blad: " + describeFailure(firstFailure.get()));
+                ticket.advance(ClaimState.CLAIMING, ClaimState.DELIVERING);
+                scheduleDelivery(playerId, new ArrayList<>(claimed), votes.size(), ticket);
+                return;
             }
+
+            // Nic nie odebrano — gracz dostaje ten sam komunikat co przy jednym głosie
+            Object failure = firstFailure.get();
+            if (failure instanceof Throwable)
+                throw failure instanceof CompletionException
+                        ? (CompletionException) failure
+                        : new CompletionException((Throwable) failure);
+            if (failure instanceof ApiResponse)
+                send(playerId, "messages.claim-fail", "{error}", ((ApiResponse) failure).errorOrDefault());
+            else
+                send(playerId, "messages.claim-error");
         });
     }
 
-    private void giveRewards(Player player) {
-        if (!getConfig().getBoolean("rewards.enabled", true)) {
-            send(player, "messages.rewards-disabled");
+    /**
+     * Opis pierwszego nieudanego claim z {@link #claimVotes} do logu.
+     */
+    private static String describeFailure(Object failure) {
+        if (failure instanceof ApiResponse)
+            return ((ApiResponse) failure).errorOrDefault();
+        if (failure instanceof CompletionException && ((Throwable) failure).getCause() != null)
+            return String.valueOf(((Throwable) failure).getCause());
+        // null: claim bez odpowiedzi API (kod HTTP inny niż 200)
+        return failure != null ? String.valueOf(failure) : "brak odpowiedzi API";
+    }
+
+    private CompletableFuture<Void> claimVote(UUID playerId, String playerName, TopServerApi api,
+            ClaimTracker.Ticket ticket, long voteId, String serverName) {
+        return claimOne(playerId, playerName, api, this.claimJournal, voteId, serverName)
+                .thenAccept(claimResponse -> handleClaimResponse(playerId, ticket, voteId, serverName,
+                        claimResponse));
+    }
+
+    /**
+     * Wysyła claim jednego głosu i zapisuje wynik w dzienniku.
+     * <p>
+     * CLAIMING jest na dysku, zanim zapytanie wyjdzie. Potem: CLAIMED przy
+     * sukcesie, ABORTED przy odmowie API albo gdy zapytanie na pewno nie
+     * wyszło (bezpiecznik, błąd dziennika). Przy nieznanym wyniku — timeout,
+     * zerwane połączenie, kod inny niż 200 — API mogło już oznaczyć głos, więc
+     * wpis zostaje, a głos sprawdza {@link #reconcile}.
+     */
+    private CompletableFuture<ApiResponse> claimOne(UUID playerId, String playerName, TopServerApi api,
+            ClaimJournal journal, long voteId, String serverName) {
+        CompletableFuture<Void> durable = journal.recordClaiming(playerId, voteId, serverName);
+        return durable
+                .thenCompose(ignored -> api.claim(playerName, voteId))
+                .whenComplete((claimResponse, e) -> {
+                    if (e == null && claimResponse != null) {
+                        if (claimResponse.success())
+                            journal.recordClaimed(playerId, voteId, serverName);
+                        else
+                            journal.recordAborted(playerId, voteId);
+                    } else if (e != null && (durable.isCompletedExceptionally() || !wasSent(e))) {
+                        journal.recordAborted(playerId, voteId);
+                    } else {
+                        queueReconcile(new ClaimJournal.Pending(playerId, voteId, serverName,
+                                System.currentTimeMillis(), false));
+                    }
+                });
+    }
+
+    /**
+     * Czy zapytanie mogło dotrzeć do API przed błędem.
+     */
+    private static boolean wasSent(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return !(cause instanceof CircuitOpenException) && !(cause instanceof IllegalArgumentException);
+    }
+
+    private void queueReconcile(ClaimJournal.Pending entry) {
+        if (isEnabled())
+            Bukkit.getScheduler().runTask(this, () -> pendingRewards.add(entry));
+    }
+
+    private void handleClaimResponse(UUID playerId, ClaimTracker.Ticket ticket, long voteId, String serverName,
+            ApiResponse claimResponse) {
+        if (claimResponse == null) {
+            send(playerId, "messages.claim-error");
             return;
         }
 
-        if (getConfig().getBoolean("rewards.items.enabled", true)) {
-            for (String itemString : getConfig().getStringList("rewards.items.list")) {
-                try {
-                    String[] parts = itemString.split(":");
-                    Material material = Material.valueOf(parts[0]);
-                    int amount = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
-                    player.getInventory().addItem(new ItemStack(material, amount));
-                } catch (Exception e) {
-                    getLogger().warning("Nieprawidlowy item: " + itemString);
-                }
-            }
+        if (claimResponse.success()) {
+            stats.countSuccess();
+            ticket.advance(ClaimState.CLAIMING, ClaimState.DELIVERING);
+            scheduleDelivery(playerId, voteId, serverName, ticket);
+        } else {
+            send(playerId, "messages.claim-fail", "{error}", claimResponse.errorOrDefault());
         }
+    }
 
-        if (getConfig().getBoolean("rewards.commands.enabled", false)) {
-            for (String cmd : getConfig().getStringList("rewards.commands.list"))
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), cmd.replace("{player}", player.getName()));
+    /**
+     * Rozstrzyga niewydaną nagrodę z dziennika, gdy gracz jest online.
+     * Potwierdzona przez API idzie od razu do wydania. Niepotwierdzona jest
+     * odbierana jeszcze raz: wydajemy ją, jeśli API potwierdzi odbiór albo
+     * odpowie, że głos był już odebrany. Zwykła odmowa nie wystarcza — jeśli
+     * pierwsze zapytanie dotarło, API odmówi, bo głos jest już odebrany —
+     * więc sprawdzamy check: głos nadal czeka, to wpis jest usuwany (gracz
+     * odbierze go normalnie), nie czeka, to nagrodę wydajemy. Bez odpowiedzi
+     * wpis czeka w pamięci na kolejne wejście gracza albo restart.
+     * Wołane z głównego wątku.
+     */
+    private void reconcile(ClaimJournal.Pending entry) {
+        UUID playerId = entry.getPlayerId();
+        long voteId = entry.getVoteId();
+        String serverName = entry.getServerName();
+        ClaimJournal journal = this.claimJournal;
+        if (journal.isEnabled() && !journal.isPending(playerId, voteId))
+            return;
+
+        if (entry.isConfirmed()) {
+            scheduleDelivery(playerId, voteId, serverName, null);
+            return;
+        }
+
+        Player player = Bukkit.getPlayer(playerId);
+        if (player == null) {
+            pendingRewards.add(entry);
+            return;
+        }
+
+        // Gracz właśnie odbiera inny głos — spróbujemy po zakończeniu
+        ClaimTracker.Ticket ticket = claimTracker.begin(playerId, ClaimState.CLAIMING);
+        if (ticket == null) {
+            pendingRewards.add(entry);
+            return;
         }
 
-        if (getConfig().getBoolean("rewards.money.enabled", false)) {
-            double amount = getConfig().getDouble("rewards.money.amount", 100.0);
-            send(player, "messages.money-received", "{amount}", String.valueOf(amount));
+        String playerName = player.getName();
+        TopServerApi api = this.api;
+        boolean accepted = claimExecutor.submit(() -> api.claim(playerName, voteId)
+                .thenCompose(claimResponse -> {
+                    if (claimResponse == null)
+                        return CompletableFuture.completedFuture(Reconciled.UNKNOWN);
+                    if (claimResponse.success() || claimResponse.alreadyClaimed())
+                        return CompletableFuture.completedFuture(Reconciled.CLAIMED);
+                    return api.check(playerName).thenApply(check -> verifyRefusal(check, voteId));
+                })
+                .handle((outcome, e) -> {
+                    if (e == null && outcome == Reconciled.CLAIMED) {
+                        journal.recordClaimed(playerId, voteId, serverName);
+                        stats.countSuccess();
+                        ticket.advance(ClaimState.CLAIMING, ClaimState.DELIVERING);
+                        scheduleDelivery(playerId, voteId, serverName, ticket);
+                        return null;
+                    }
+                    if (e == null && outcome == Reconciled.REFUSED) {
+                        journal.recordAborted(playerId, voteId);
+                        getLogger().info("Niewydany glos " + voteId + " gracza " + playerName
+                                + " nadal czeka w API - gracz odbierze go komenda.");
+                    } else {
+                        deferReconcile(entry);
+                    }
+                    ticket.finish();
+                    return null;
+                }));
+        if (!accepted) {
+            ticket.finish();
+            pendingRewards.defer(entry);
         }
     }
 
-    private JSONObject makeApiRequest(String action, String playerName, Long voteId) throws Exception {
-        StringBuilder urlBuilder = new StringBuilder(apiUrl);
-        urlBuilder.append("?action=").append(action);
-        urlBuilder.append("&nick=").append(URLEncoder.encode(playerName, StandardCharsets.UTF_8.toString()));
-        urlBuilder.append("&server_ip=").append(URLEncoder.encode(serverIp, StandardCharsets.UTF_8.toString()));
-        if (voteId != null)
-            urlBuilder.append("&vote_id=").append(voteId);
+    /** Wynik ponownego odbierania wpisu z dziennika. */
+    private enum Reconciled {
+        /** API ma głos jako odebrany — wydajemy nagrodę. */
+        CLAIMED,
+        /** Głos nadal czeka w API — wpis można usunąć. */
+        REFUSED,
+        /** Brak odpowiedzi — wpis czeka na kolejną próbę. */
+        UNKNOWN
+    }
+
+    /**
+     * Odmowa claim bez already_claimed: głos, który nadal czeka w check, nie
+     * został odebrany; głos, którego już tam nie ma, odebrało pierwsze,
+     * niepotwierdzone zapytanie.
+     */
+    private Reconciled verifyRefusal(ApiResponse check, long voteId) {
+        if (check == null || !check.success())
+            return Reconciled.UNKNOWN;
+        if (check.hasReward()) {
+            for (ApiResponse vote : check.pendingVotes()) {
+                if (vote.voteId() == voteId)
+                    return Reconciled.REFUSED;
+            }
+        }
+        getLogger().warning("Glos " + voteId + " odebrany w API bez potwierdzenia - wydajemy nagrode z dziennika.");
+        return Reconciled.CLAIMED;
+    }
+
+    /**
+     * Odkłada nierozstrzygnięty wpis do kolejnego wejścia gracza — z dowolnego wątku.
+     */
+    private void deferReconcile(ClaimJournal.Pending entry) {
+        if (isEnabled())
+            Bukkit.getScheduler().runTask(this, () -> pendingRewards.defer(entry));
+    }
+
+    /**
+     * Dodaje wydanie nagrody do kolejki na głównym wątku.
+     *
+     * @param ticket bilet odbierania do zamknięcia po wydaniu, albo null
+     */
+    private void scheduleDelivery(UUID playerId, long voteId, String serverName, ClaimTracker.Ticket ticket) {
+        deliveryScheduler.submit(() -> {
+            try {
+                Player player = Bukkit.getPlayer(playerId);
+                if (player != null) {
+                    long start = System.nanoTime();
+                    deliverReward(player, voteId, serverName);
+                    long end = System.nanoTime();
+                    stats.getDelivery().record(end - start);
+                    if (ticket != null)
+                        stats.getEndToEnd().record(end - ticket.getStartedNanos());
+                } else {
+                    // Gracz wyszedł — dostanie nagrodę przy następnym wejściu
+                    pendingRewards.add(new ClaimJournal.Pending(playerId, voteId, serverName,
+                            System.currentTimeMillis(), true));
+                }
+            } finally {
+                if (ticket != null)
+                    ticket.finish();
+            }
+        });
+    }
 
-        URL url = new URL(urlBuilder.toString());
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(5000);
-        conn.setReadTimeout(5000);
-        conn.setRequestProperty("User-Agent", "TopServerRewards/2.0");
+    /**
+     * Dodaje wydanie nagród za kilka głosów jako jedno zadanie na głównym wątku.
+     *
+     * @param requested ile głosów próbowano odebrać — więcej niż votes, jeśli część się nie udała
+     */
+    private void scheduleDelivery(UUID playerId, List<ApiResponse> votes, int requested,
+            ClaimTracker.Ticket ticket) {
+        deliveryScheduler.submit(() -> {
+            try {
+                Player player = Bukkit.getPlayer(playerId);
+                if (player != null) {
+                    long start = System.nanoTime();
+                    deliverRewards(player, votes, requested);
+                    long end = System.nanoTime();
+                    stats.getDelivery().record(end - start);
+                    stats.getEndToEnd().record(end - ticket.getStartedNanos());
+                } else {
+                    long now = System.currentTimeMillis();
+                    for (ApiResponse vote : votes)
+                        pendingRewards.add(new ClaimJournal.Pending(playerId, vote.voteId(), vote.serverName(), now,
+                                true));
+                }
+            } finally {
+                ticket.finish();
+            }
+        });
+    }
 
-        if (conn.getResponseCode() == 200) {
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = in.readLine()) != null)
-                response.append(line);
-            in.close();
-            return (JSONObject) new JSONParser().parse(response.toString());
+    private void deliverRewards(Player player, List<ApiResponse> votes, int requested) {
+        PluginSettings settings = this.settings;
+        RewardPlan rewardPlan = settings.getRewardPlan();
+        MessageCatalog messages = settings.getMessages();
+        rewardPlan.deliver(player, messages, votes.size());
+
+        Set<String> servers = new LinkedHashSet<>();
+        for (ApiResponse vote : votes) {
+            claimJournal.recordDelivered(player.getUniqueId(), vote.voteId());
+            if (vote.serverName() != null)
+                servers.add(vote.serverName());
         }
 
-        return null;
+        send(player, "messages.claimed.line-top");
+        send(player, "messages.claimed.success-many", "{count}", String.valueOf(votes.size()));
+        if (requested > votes.size())
+            send(player, "messages.claimed.partial", "{count}", String.valueOf(votes.size()), "{total}",
+                    String.valueOf(requested), "{failed}", String.valueOf(requested - votes.size()));
+        send(player, "messages.claimed.servers-many", "{servers}", String.join(", ", servers));
+        send(player, "messages.claimed.thanks");
+        send(player, "messages.claimed.line-bottom");
+
+        if (rewardPlan.isBroadcast())
+            broadcasts.announce(player.getName(), messages);
+    }
+
+    private void deliverReward(Player player, long voteId, String serverName) {
+        PluginSettings settings = this.settings;
+        RewardPlan rewardPlan = settings.getRewardPlan();
+        MessageCatalog messages = settings.getMessages();
+        rewardPlan.deliver(player, messages);
+        claimJournal.recordDelivered(player.getUniqueId(), voteId);
+
+        send(player, "messages.claimed.line-top");
+        send(player, "messages.claimed.success");
+        send(player, "messages.claimed.server", "{server}", serverName);
+        send(player, "messages.claimed.thanks");
+        send(player, "messages.claimed.line-bottom");
+
+        if (rewardPlan.isBroadcast())
+            broadcasts.announce(player.getName(), messages);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package pl.topserver.rewards.api;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Limit czasu zapytania dopasowywany do zmierzonych czasów odpowiedzi API.
+ * Trzyma ostatnie czasy odpowiedzi i ustawia timeout na wielokrotność p99,
+ * w granicach min/max z configu. Dopóki nie ma pomiarów, używa maksimum.
+ * Zapytanie przerwane timeoutem liczy się jako próbka równa bieżącemu
+ * limitowi — inaczej przy zwolnieniu API okno widziałoby tylko szybkie
+ * odpowiedzi, a limit zostawałby za niski.
+ */
+public class AdaptiveTimeout {
+
+    private static final int SAMPLES = 128;
+    private static final int RECOMPUTE_EVERY = 16;
+    private static final int P99_MULTIPLIER = 3;
+
+    private final long minMillis;
+    private final long maxMillis;
+    private final long[] samples = new long[SAMPLES];
+    private int pos;
+    private int count;
+    private int sinceRecompute;
+
+    private volatile Duration timeout;
+    private volatile long p50Millis;
+    private volatile long p99Millis;
+
+    public AdaptiveTimeout(long minMillis, long maxMillis) {
+        this.minMillis = Math.max(1, minMillis);
+        this.maxMillis = Math.max(this.minMillis, maxMillis);
+        this.timeout = Duration.ofMillis(this.maxMillis);
+    }
+
+    public void record(long durationNanos) {
+        add(durationNanos / 1_000_000L);
+    }
+
+    /**
+     * Zapisuje zapytanie, które nie zmieściło się w bieżącym limicie.
+     */
+    public void recordTimeout() {
+        add(timeout.toMillis());
+    }
+
+    private synchronized void add(long millis) {
+        samples[pos] = millis;
+        pos = (pos + 1) % SAMPLES;
+        if (count < SAMPLES)
+            count++;
+        if (++sinceRecompute >= RECOMPUTE_EVERY || count < RECOMPUTE_EVERY) {
+            sinceRecompute = 0;
+            recompute();
+        }
+    }
+
+    private void recompute() {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        p50Millis = sorted[(count - 1) / 2];
+        p99Millis = sorted[(int) Math.ceil(count * 0.99) - 1];
+
+        long millis = Math.max(minMillis, Math.min(maxMillis, p99Millis * P99_MULTIPLIER));
+        timeout = Duration.ofMillis(millis);
+    }
+
+    public Duration current() {
+        return timeout;
+    }
+
+    public long getP50Millis() {
+        return p50Millis;
+    }
+
+    public long getP99Millis() {
+        return p99Millis;
+    }
+}
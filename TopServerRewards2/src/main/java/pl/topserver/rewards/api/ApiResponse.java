@@ -0,0 +1,41 @@
+package pl.topserver.rewards.api;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pola odpowiedzi API używane przez plugin. Pozostałe pola JSON są pomijane
+ * przy dekodowaniu. Powiadomienia webhooka i wydania z GitHuba mają własne
+ * typy: {@link VoteNotification} i {@link ReleaseInfo}.
+ *
+ * @param voteId  {@link #NO_VOTE_ID}, jeśli odpowiedź nie zawierała vote_id
+ * @param results wyniki per nick z action=check_batch, albo null
+ * @param votes   wszystkie nieodebrane głosy (vote_id, server_name) z check, albo null
+ * @param alreadyClaimed claim: głos był już wcześniej odebrany dla tego serwera
+ */
+public record ApiResponse(boolean success, boolean hasReward, long voteId, String serverName, String message,
+        String error, Map<String, ApiResponse> results, List<ApiResponse> votes, boolean alreadyClaimed) {
+
+    public static final long NO_VOTE_ID = -1L;
+
+    public boolean hasVoteId() {
+        return voteId != NO_VOTE_ID;
+    }
+
+    /**
+     * Głosy do odebrania: lista "votes", a gdy API jej nie zwraca — sam vote_id.
+     */
+    public List<ApiResponse> pendingVotes() {
+        if (votes != null && !votes.isEmpty())
+            return votes;
+        return hasVoteId() ? List.of(this) : List.of();
+    }
+
+    public String messageOrEmpty() {
+        return message != null ? message : "";
+    }
+
+    public String errorOrDefault() {
+        return error != null ? error : "Nieznany blad";
+    }
+}
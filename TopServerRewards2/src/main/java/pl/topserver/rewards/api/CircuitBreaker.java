@@ -0,0 +1,183 @@
+package pl.topserver.rewards.api;
+
+/**
+ * Bezpiecznik dla zapytań do API TopServer.pl.
+ * <ul>
+ * <li>CLOSED — zapytania idą normalnie, wyniki ostatnich N zapytań są zapamiętywane,</li>
+ * <li>OPEN — zbyt dużo błędów lub wolnych odpowiedzi; zapytania są od razu odrzucane,</li>
+ * <li>HALF_OPEN — po czasie przerwy puszczamy kilka próbnych zapytań; jeśli
+ * wszystkie się udadzą, wracamy do CLOSED, w przeciwnym razie znowu OPEN.</li>
+ * </ul>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Okno ostatnich wyników: 0 = ok, 1 = błąd, 2 = wolne
+    private final byte[] window;
+    private int windowPos;
+    private int windowCount;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenStarted;
+    private int halfOpenSucceeded;
+    private long rejectedCalls;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, int failureRateThreshold, int slowCallRateThreshold,
+            long slowCallMillis, long openMillis, int halfOpenCalls) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.openNanos = openMillis * 1_000_000L;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.window = new byte[this.windowSize];
+    }
+
+    /**
+     * Bezpiecznik, który zawsze przepuszcza zapytania (wyłączony w configu).
+     */
+    public static CircuitBreaker disabled() {
+        return new CircuitBreaker(1, 1, 101, 101, Long.MAX_VALUE / 1_000_000L, 0, 1);
+    }
+
+    /**
+     * @return true jeśli zapytanie może zostać wysłane
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejectedCalls++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenStarted = 0;
+            halfOpenSucceeded = 0;
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenStarted >= halfOpenCalls) {
+                rejectedCalls++;
+                return false;
+            }
+            halfOpenStarted++;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess(long durationNanos) {
+        boolean slow = durationNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            if (slow) {
+                open();
+                return;
+            }
+            if (++halfOpenSucceeded >= halfOpenCalls)
+                close();
+            return;
+        }
+        record(slow ? (byte) 2 : (byte) 0);
+    }
+
+    public synchronized void onError(long durationNanos) {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record((byte) 1);
+    }
+
+    private void record(byte outcome) {
+        if (state != State.CLOSED)
+            return;
+
+        if (windowCount == windowSize) {
+            byte old = window[windowPos];
+            if (old == 1)
+                failures--;
+            else if (old == 2)
+                slowCalls--;
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = outcome;
+        windowPos = (windowPos + 1) % windowSize;
+        if (outcome == 1)
+            failures++;
+        else if (outcome == 2)
+            slowCalls++;
+
+        if (windowCount < minimumCalls)
+            return;
+        if (failures * 100 >= failureRateThreshold * windowCount
+                || slowCalls * 100 >= slowCallRateThreshold * windowCount)
+            open();
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        resetWindow();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        windowPos = 0;
+        windowCount = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    public synchronized State getState() {
+        // OPEN po upływie przerwy jest już faktycznie gotowy na próbne zapytania
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos)
+            return State.HALF_OPEN;
+        return state;
+    }
+
+    public synchronized int getFailureRate() {
+        return windowCount == 0 ? 0 : failures * 100 / windowCount;
+    }
+
+    public synchronized int getSlowCallRate() {
+        return windowCount == 0 ? 0 : slowCalls * 100 / windowCount;
+    }
+
+    public synchronized int getBufferedCalls() {
+        return windowCount;
+    }
+
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    /**
+     * Sekundy do próbnych zapytań, gdy bezpiecznik jest otwarty.
+     */
+    public synchronized long getRemainingOpenSeconds() {
+        if (state != State.OPEN)
+            return 0;
+        long remaining = openNanos - (System.nanoTime() - openedAt);
+        return Math.max(0, (remaining + 999_999_999L) / 1_000_000_000L);
+    }
+}
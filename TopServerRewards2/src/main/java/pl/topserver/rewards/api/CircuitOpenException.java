@@ -0,0 +1,13 @@
+package pl.topserver.rewards.api;
+
+/**
+ * Zapytanie odrzucone bez wysyłania, bo bezpiecznik API jest otwarty.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException() {
+        super("API TopServer.pl jest chwilowo niedostepne (bezpiecznik otwarty)");
+    }
+}
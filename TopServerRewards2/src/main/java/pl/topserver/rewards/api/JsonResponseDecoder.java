@@ -0,0 +1,491 @@
+package pl.topserver.rewards.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Strumieniowy dekoder odpowiedzi JSON z API TopServer.pl, jego webhooka i GitHuba.
+ * Wyciąga tylko pola, których używa plugin — resztę przeskakuje bez
+ * budowania obiektów. Nie jest to pełny parser JSON: oczekuje obiektu na
+ * najwyższym poziomie.
+ * <p>
+ * Bufor jest osobny dla każdego wywołania i dopasowany do odpowiedzi:
+ * nieskompresowana treść jest dekodowana z UTF-8 raz, do tablicy jej
+ * długości, a skompresowana i strumienie są czytane przez bufor nie większy
+ * niż {@value #BUFFER_SIZE} znaków. Dekoder nie trzyma nic w wątku, więc
+ * działa tak samo na wątkach wirtualnych.
+ */
+public final class JsonResponseDecoder implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MIN_BUFFER_SIZE = 256;
+    /** Szacowany stopień kompresji JSON-a — do doboru bufora przy gzip. */
+    private static final int GZIP_RATIO = 8;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private final StringBuilder text = new StringBuilder(32);
+    private int pos;
+    private int limit;
+
+    /**
+     * @param reader źródło kolejnych znaków, albo null, jeśli cała treść jest już w buforze
+     */
+    private JsonResponseDecoder(Reader reader, char[] buffer, int limit) {
+        this.reader = reader;
+        this.buffer = buffer;
+        this.limit = limit;
+    }
+
+    /**
+     * Dekoduje odpowiedź API TopServer.pl. Jeśli gzip jest true, treść jest najpierw rozpakowywana.
+     */
+    public static ApiResponse decode(byte[] body, boolean gzip) throws IOException {
+        try (JsonResponseDecoder decoder = open(body, gzip)) {
+            return decoder.readResponse(true, true);
+        }
+    }
+
+    /**
+     * Dekoduje powiadomienie o głosie wysłane na webhook.
+     */
+    public static VoteNotification decodeVote(byte[] body) throws IOException {
+        try (JsonResponseDecoder decoder = open(body, false)) {
+            return decoder.readVote();
+        }
+    }
+
+    /**
+     * Dekoduje wydanie z API GitHuba. Odpowiedź bywa duża (opis, lista
+     * plików), więc jest czytana strumieniowo.
+     */
+    public static ReleaseInfo decodeRelease(InputStream in, boolean gzip) throws IOException {
+        InputStream source = gzip ? new GZIPInputStream(in, BUFFER_SIZE) : in;
+        try (JsonResponseDecoder decoder = new JsonResponseDecoder(
+                new InputStreamReader(source, StandardCharsets.UTF_8), new char[BUFFER_SIZE], 0)) {
+            return decoder.readRelease();
+        }
+    }
+
+    public static boolean isGzip(String contentEncoding) {
+        return contentEncoding != null && contentEncoding.trim().equalsIgnoreCase("gzip");
+    }
+
+    private static JsonResponseDecoder open(byte[] body, boolean gzip) throws IOException {
+        if (!gzip) {
+            // Tablica z dekodera ma długość treści (UTF-8 to najwyżej jeden znak na bajt)
+            CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(body));
+            return new JsonResponseDecoder(null, chars.array(), chars.limit());
+        }
+        int size = (int) Math.min(BUFFER_SIZE, Math.max(MIN_BUFFER_SIZE, (long) body.length * GZIP_RATIO));
+        Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(body), size),
+                StandardCharsets.UTF_8);
+        return new JsonResponseDecoder(reader, new char[size], 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null)
+            reader.close();
+    }
+
+    /**
+     * Czyta obiekt pole po polu. {@code fields} dostaje nazwę pola w
+     * {@link #text} i czyta jego wartość; pola, których nie zna, są pomijane.
+     */
+    private void readObject(FieldReader fields) throws IOException {
+        expect('{');
+        if (peekToken() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            expect('"');
+            readStringBody();
+            expect(':');
+
+            if (!fields.read())
+                skipValue();
+
+            char next = nextToken();
+            if (next == '}')
+                return;
+            if (next != ',')
+                throw error("oczekiwano ',' lub '}'");
+        }
+    }
+
+    /**
+     * @param topLevel  czy czytać "results" (check_batch)
+     * @param withVotes czy czytać listę "votes" — w odpowiedzi i w wynikach per nick, nie w samych głosach
+     */
+    private ApiResponse readResponse(boolean topLevel, boolean withVotes) throws IOException {
+        ResponseFields response = new ResponseFields();
+        readObject(() -> {
+            if (keyIs("success")) {
+                response.success = readBoolean();
+            } else if (keyIs("has_reward")) {
+                response.hasReward = readBoolean();
+            } else if (keyIs("already_claimed")) {
+                response.alreadyClaimed = readBoolean();
+            } else if (keyIs("vote_id")) {
+                response.voteId = readLong();
+            } else if (keyIs("server_name")) {
+                response.serverName = readText();
+            } else if (keyIs("message")) {
+                response.message = readText();
+            } else if (keyIs("error")) {
+                response.error = readText();
+            } else if (topLevel && keyIs("results") && peekToken() == '{') {
+                response.results = readResults();
+            } else if (withVotes && keyIs("votes") && peekToken() == '[') {
+                response.votes = readVotes();
+            } else {
+                return false;
+            }
+            return true;
+        });
+        return new ApiResponse(response.success, response.hasReward, response.voteId, response.serverName,
+                response.message, response.error, response.results, response.votes, response.alreadyClaimed);
+    }
+
+    private VoteNotification readVote() throws IOException {
+        VoteFields vote = new VoteFields();
+        readObject(() -> {
+            if (keyIs("nick")) {
+                vote.nick = readText();
+            } else if (keyIs("vote_id")) {
+                vote.voteId = readLong();
+            } else if (keyIs("server_name")) {
+                vote.serverName = readText();
+            } else {
+                return false;
+            }
+            return true;
+        });
+        return new VoteNotification(vote.nick, vote.voteId, vote.serverName);
+    }
+
+    private ReleaseInfo readRelease() throws IOException {
+        ReleaseFields release = new ReleaseFields();
+        readObject(() -> {
+            if (!keyIs("tag_name"))
+                return false;
+            release.tagName = readText();
+            return true;
+        });
+        return new ReleaseInfo(release.tagName);
+    }
+
+    private Map<String, ApiResponse> readResults() throws IOException {
+        Map<String, ApiResponse> results = new HashMap<>();
+        expect('{');
+        if (peekToken() == '}') {
+            pos++;
+            return results;
+        }
+        while (true) {
+            expect('"');
+            readStringBody();
+            String nick = text.toString();
+            expect(':');
+            if (peekToken() == '{')
+                results.put(nick, readResponse(false, true));
+            else
+                skipValue();
+
+            char next = nextToken();
+            if (next == '}')
+                return results;
+            if (next != ',')
+                throw error("oczekiwano ',' lub '}'");
+        }
+    }
+
+    private List<ApiResponse> readVotes() throws IOException {
+        List<ApiResponse> votes = new ArrayList<>();
+        expect('[');
+        if (peekToken() == ']') {
+            pos++;
+            return votes;
+        }
+        while (true) {
+            if (peekToken() == '{') {
+                ApiResponse vote = readResponse(false, false);
+                if (vote.hasVoteId())
+                    votes.add(vote);
+            } else {
+                skipValue();
+            }
+
+            char next = nextToken();
+            if (next == ']')
+                return votes;
+            if (next != ',')
+                throw error("oczekiwano ',' lub ']'");
+        }
+    }
+
+    private boolean keyIs(String key) {
+        return key.contentEquals(text);
+    }
+
+    // ---- wartości ----
+
+    private boolean readBoolean() throws IOException {
+        char c = peekToken();
+        if (c == 't') {
+            expectLiteral("true");
+            return true;
+        }
+        if (c == 'f') {
+            expectLiteral("false");
+            return false;
+        }
+        skipValue();
+        return false;
+    }
+
+    private long readLong() throws IOException {
+        char c = peekToken();
+        if (c == '"') {
+            pos++;
+            readStringBody();
+            try {
+                return Long.parseLong(text.toString().trim());
+            } catch (NumberFormatException e) {
+                return ApiResponse.NO_VOTE_ID;
+            }
+        }
+        if (c != '-' && (c < '0' || c > '9')) {
+            skipValue();
+            return ApiResponse.NO_VOTE_ID;
+        }
+
+        boolean negative = false;
+        if (c == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        while (fill() && buffer[pos] >= '0' && buffer[pos] <= '9') {
+            value = value * 10 + (buffer[pos] - '0');
+            pos++;
+        }
+        // Ewentualna część ułamkowa/wykładnik jest ignorowana
+        while (fill() && isNumberChar(buffer[pos]))
+            pos++;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Czyta napis; inne wartości skalarne zwraca jako tekst, null dla null, obiekty i tablice pomija.
+     */
+    private String readText() throws IOException {
+        char c = peekToken();
+        if (c == '"') {
+            pos++;
+            readStringBody();
+            return text.toString();
+        }
+        if (c == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        if (c == '{' || c == '[') {
+            skipValue();
+            return null;
+        }
+        text.setLength(0);
+        while (fill() && (isNumberChar(buffer[pos]) || Character.isLetter(buffer[pos])))
+            text.append(buffer[pos++]);
+        return text.toString();
+    }
+
+    /**
+     * Czyta treść napisu (po otwierającym cudzysłowie) do {@link #text}.
+     */
+    private void readStringBody() throws IOException {
+        text.setLength(0);
+        while (true) {
+            if (!fill())
+                throw error("niezakonczony napis");
+            char c = buffer[pos++];
+            if (c == '"')
+                return;
+            if (c != '\\') {
+                text.append(c);
+                continue;
+            }
+            if (!fill())
+                throw error("niezakonczony napis");
+            char escaped = buffer[pos++];
+            switch (escaped) {
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'u':
+                    text.append(readUnicodeEscape());
+                    break;
+                default:
+                    text.append(escaped);
+            }
+        }
+    }
+
+    private char readUnicodeEscape() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            if (!fill())
+                throw error("niepelna sekwencja \\u");
+            int digit = Character.digit(buffer[pos++], 16);
+            if (digit < 0)
+                throw error("nieprawidlowa sekwencja \\u");
+            value = (value << 4) | digit;
+        }
+        return (char) value;
+    }
+
+    /**
+     * Przeskakuje dowolną wartość, łącznie z zagnieżdżonymi obiektami i tablicami.
+     */
+    private void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            char c = nextToken();
+            switch (c) {
+                case '{':
+                case '[':
+                    depth++;
+                    break;
+                case '}':
+                case ']':
+                    depth--;
+                    break;
+                case '"':
+                    skipString();
+                    break;
+                default:
+                    // Liczba, true/false/null albo ':' i ',' wewnątrz zagnieżdżenia
+                    while (fill() && (isNumberChar(buffer[pos]) || Character.isLetter(buffer[pos])))
+                        pos++;
+            }
+        } while (depth > 0);
+    }
+
+    private void skipString() throws IOException {
+        while (true) {
+            if (!fill())
+                throw error("niezakonczony napis");
+            char c = buffer[pos++];
+            if (c == '"')
+                return;
+            if (c == '\\') {
+                if (!fill())
+                    throw error("niezakonczony napis");
+                pos++;
+            }
+        }
+    }
+
+    // ---- bufor ----
+
+    private boolean fill() throws IOException {
+        if (pos < limit)
+            return true;
+        limit = reader.read(buffer, 0, buffer.length);
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private char peekToken() throws IOException {
+        while (fill()) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t' && c != '\uFEFF')
+                return c;
+            pos++;
+        }
+        throw error("nieoczekiwany koniec odpowiedzi");
+    }
+
+    private char nextToken() throws IOException {
+        char c = peekToken();
+        pos++;
+        return c;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (nextToken() != expected)
+            throw error("oczekiwano '" + expected + "'");
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (!fill() || buffer[pos++] != literal.charAt(i))
+                throw error("oczekiwano " + literal);
+        }
+    }
+
+    private static boolean isNumberChar(char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E';
+    }
+
+    private IOException error(String what) {
+        return new IOException("Nieprawidlowa odpowiedz JSON: " + what);
+    }
+
+    @FunctionalInterface
+    private interface FieldReader {
+        /** Czyta wartość pola, którego nazwa jest w text; false, jeśli pole trzeba pominąć. */
+        boolean read() throws IOException;
+    }
+
+    private static final class ResponseFields {
+        boolean success;
+        boolean hasReward;
+        boolean alreadyClaimed;
+        long voteId = ApiResponse.NO_VOTE_ID;
+        String serverName;
+        String message;
+        String error;
+        Map<String, ApiResponse> results;
+        List<ApiResponse> votes;
+    }
+
+    private static final class VoteFields {
+        String nick;
+        long voteId = ApiResponse.NO_VOTE_ID;
+        String serverName;
+    }
+
+    private static final class ReleaseFields {
+        String tagName;
+    }
+}
@@ -0,0 +1,9 @@
+package pl.topserver.rewards.api;
+
+/**
+ * Najnowsze wydanie z API GitHuba — plugin potrzebuje tylko jego tagu.
+ *
+ * @param tagName tag wydania (np. "v2.1.0"), albo null, jeśli odpowiedź go nie zawierała
+ */
+public record ReleaseInfo(String tagName) {
+}
@@ -0,0 +1,181 @@
+package pl.topserver.rewards.api;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import pl.topserver.rewards.stats.ClaimStats;
+import pl.topserver.rewards.stats.LatencyHistogram;
+
+/**
+ * Klient API TopServer.pl.
+ * Jedna instancja {@link HttpClient} jest współdzielona przez wszystkie zapytania,
+ * więc połączenia (TLS, HTTP/2) są utrzymywane i używane ponownie.
+ * Tworzony w onEnable. Przy przeładowaniu konfiguracji z tym samym api-url
+ * {@link #reconfigure} zachowuje klienta HTTP i jego połączenia.
+ */
+public class TopServerApi {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final String USER_AGENT = "TopServerRewards/2.0";
+
+    private final HttpClient client;
+    private final String apiUrl;
+    private final String serverIp;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveTimeout timeout;
+    private final ClaimStats stats;
+
+    public TopServerApi(String apiUrl, String serverIp, CircuitBreaker circuitBreaker, AdaptiveTimeout timeout,
+            ClaimStats stats, Executor executor) {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build(), apiUrl, serverIp, circuitBreaker, timeout, stats);
+    }
+
+    private TopServerApi(HttpClient client, String apiUrl, String serverIp, CircuitBreaker circuitBreaker,
+            AdaptiveTimeout timeout, ClaimStats stats) {
+        this.client = client;
+        this.apiUrl = apiUrl;
+        this.serverIp = serverIp;
+        this.circuitBreaker = circuitBreaker;
+        this.timeout = timeout;
+        this.stats = stats;
+    }
+
+    /**
+     * Klient z nowymi ustawieniami na tym samym {@link HttpClient} i tym samym
+     * api-url. Zapytania w toku kończą się na starym obiekcie.
+     */
+    public TopServerApi reconfigure(String serverIp, CircuitBreaker circuitBreaker, AdaptiveTimeout timeout) {
+        return new TopServerApi(client, apiUrl, serverIp, circuitBreaker, timeout, stats);
+    }
+
+    public CompletableFuture<ApiResponse> check(String playerName) {
+        return request("check", playerName, null, stats.getCheck());
+    }
+
+    public CompletableFuture<ApiResponse> claim(String playerName, long voteId) {
+        return request("claim", playerName, voteId, stats.getClaim());
+    }
+
+    /**
+     * Sprawdza wielu graczy jednym zapytaniem (action=check_batch).
+     * Odpowiedź zawiera obiekt "results" z wynikami per nick.
+     */
+    public CompletableFuture<ApiResponse> checkBatch(List<String> playerNames) {
+        StringBuilder urlBuilder = new StringBuilder(apiUrl);
+        urlBuilder.append("?action=check_batch");
+        urlBuilder.append("&nicks=").append(URLEncoder.encode(String.join(",", playerNames), StandardCharsets.UTF_8));
+        urlBuilder.append("&server_ip=").append(URLEncoder.encode(serverIp, StandardCharsets.UTF_8));
+        return send(urlBuilder.toString(), null);
+    }
+
+    private CompletableFuture<ApiResponse> request(String action, String playerName, Long voteId,
+            LatencyHistogram histogram) {
+        StringBuilder urlBuilder = new StringBuilder(apiUrl);
+        urlBuilder.append("?action=").append(action);
+        urlBuilder.append("&nick=").append(URLEncoder.encode(playerName, StandardCharsets.UTF_8));
+        urlBuilder.append("&server_ip=").append(URLEncoder.encode(serverIp, StandardCharsets.UTF_8));
+        if (voteId != null)
+            urlBuilder.append("&vote_id=").append(voteId);
+        return send(urlBuilder.toString(), histogram);
+    }
+
+    /**
+     * Wysyła zapytanie bez blokowania wątku.
+     * Future kończy się wartością null, jeśli API zwróciło kod inny niż 200,
+     * albo wyjątkiem {@link CircuitOpenException}, jeśli bezpiecznik jest otwarty.
+     *
+     * @param histogram gdzie zapisać czas całego zapytania, albo null
+     */
+    private CompletableFuture<ApiResponse> send(String url, LatencyHistogram histogram) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(timeout.current())
+                    .header("User-Agent", USER_AGENT)
+                    .header("Accept-Encoding", "gzip")
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            // Nieprawidłowy api-url w configu
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // Dopiero po zbudowaniu zapytania — pozwolenie próbne HALF_OPEN nie może przepaść
+        if (!circuitBreaker.tryAcquirePermission())
+            return CompletableFuture.failedFuture(new CircuitOpenException());
+
+        stats.countApiRequest();
+        long start = System.nanoTime();
+        // HttpClient nie podaje osobno DNS i połączenia — mierzymy czas do nagłówków odpowiedzi
+        HttpResponse.BodyHandler<byte[]> bodyHandler = info -> {
+            stats.getApiHeaders().record(System.nanoTime() - start);
+            return HttpResponse.BodyHandlers.ofByteArray().apply(info);
+        };
+        return client.sendAsync(request, bodyHandler)
+                .whenComplete((response, e) -> {
+                    long duration = System.nanoTime() - start;
+                    if (histogram != null)
+                        histogram.record(duration);
+                    if (e != null || response.statusCode() != 200)
+                        stats.countApiError();
+                    // 5xx i 429 oznaczają problem po stronie API, inne kody to poprawne odpowiedzi
+                    if (e != null || response.statusCode() >= 500 || response.statusCode() == 429) {
+                        circuitBreaker.onError(duration);
+                        if (isTimeout(e))
+                            timeout.recordTimeout();
+                    } else {
+                        circuitBreaker.onSuccess(duration);
+                        timeout.record(duration);
+                    }
+                })
+                .thenApply(response -> {
+                    if (response.statusCode() != 200)
+                        return null;
+                    boolean gzip = JsonResponseDecoder.isGzip(
+                            response.headers().firstValue("Content-Encoding").orElse(null));
+                    try {
+                        return JsonResponseDecoder.decode(response.body(), gzip);
+                    } catch (IOException e) {
+                        stats.countApiError();
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        return cause instanceof HttpTimeoutException;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public String getServerIp() {
+        return serverIp;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public AdaptiveTimeout getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,21 @@
+package pl.topserver.rewards.api;
+
+/**
+ * Powiadomienie o jednym głosie wysłane przez TopServer.pl na webhook.
+ *
+ * @param nick   nick gracza, który zagłosował
+ * @param voteId {@link ApiResponse#NO_VOTE_ID}, jeśli powiadomienie nie zawierało vote_id
+ */
+public record VoteNotification(String nick, long voteId, String serverName) {
+
+    public boolean hasVoteId() {
+        return voteId != ApiResponse.NO_VOTE_ID;
+    }
+
+    /**
+     * Głos w postaci, w jakiej zwraca go check — do {@link pl.topserver.rewards.vote.VoteStatus}.
+     */
+    public ApiResponse toVote() {
+        return new ApiResponse(true, true, voteId, serverName, null, null, null, null, false);
+    }
+}
@@ -0,0 +1,170 @@
+package pl.topserver.rewards.claim;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Własna pula wątków dla odbierania nagród, niezależna od wspólnej puli
+ * asynchronicznej Bukkita. Na Javie 21+ używa wątków wirtualnych, na starszej
+ * ograniczonej puli zwykłych wątków.
+ * <p>
+ * Liczba jednocześnie trwających odbierań jest ograniczona, nadmiarowe czekają
+ * w ograniczonej kolejce, a gdy i ona jest pełna — zgłoszenie jest odrzucane
+ * (gracz dostaje "serwer zajęty"). Dzięki temu nawet duża fala odbierań po
+ * akcji głosowania nie zagłodzi zadań innych pluginów.
+ */
+public final class ClaimExecutor implements Executor {
+
+    private final ExecutorService delegate;
+    private final boolean virtualThreads;
+    private final Queue<Supplier<? extends CompletionStage<?>>> queue = new ArrayDeque<>();
+
+    private int maxConcurrent;
+    private int queueCapacity;
+    private int active;
+    private long rejected;
+
+    private ClaimExecutor(ExecutorService delegate, boolean virtualThreads, int maxConcurrent, int queueCapacity) {
+        this.delegate = delegate;
+        this.virtualThreads = virtualThreads;
+        setLimits(maxConcurrent, queueCapacity);
+    }
+
+    public static ClaimExecutor create(boolean preferVirtual, int platformThreads, int maxConcurrent,
+            int queueCapacity, Logger logger) {
+        if (preferVirtual) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                logger.info("Odbieranie nagrod korzysta z watkow wirtualnych.");
+                return new ClaimExecutor(virtual, true, maxConcurrent, queueCapacity);
+            }
+        }
+
+        int threads = Math.max(1, platformThreads);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "TopServerRewards-claim-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        logger.info("Odbieranie nagrod korzysta z puli " + threads + " watkow.");
+        return new ClaimExecutor(pool, false, maxConcurrent, queueCapacity);
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() przez refleksję, bo kompilujemy pod Javę 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public synchronized void setLimits(int maxConcurrent, int queueCapacity) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.queueCapacity = Math.max(0, queueCapacity);
+    }
+
+    /**
+     * Zgłasza odbieranie nagrody. Jeśli jest wolne miejsce, startuje od razu,
+     * w przeciwnym razie czeka w kolejce.
+     *
+     * @param pipeline uruchamia odbieranie i zwraca etap, który kończy się razem z nim
+     * @return false jeśli kolejka jest pełna i zgłoszenie zostało odrzucone
+     */
+    public boolean submit(Supplier<? extends CompletionStage<?>> pipeline) {
+        synchronized (this) {
+            if (active >= maxConcurrent) {
+                if (queue.size() >= queueCapacity) {
+                    rejected++;
+                    return false;
+                }
+                queue.add(pipeline);
+                return true;
+            }
+            active++;
+        }
+        start(pipeline);
+        return true;
+    }
+
+    private void start(Supplier<? extends CompletionStage<?>> pipeline) {
+        delegate.execute(() -> {
+            CompletionStage<?> stage;
+            try {
+                stage = pipeline.get();
+            } catch (RuntimeException | Error e) {
+                onDone();
+                throw e;
+            }
+            stage.whenComplete((result, e) -> onDone());
+        });
+    }
+
+    private void onDone() {
+        Supplier<? extends CompletionStage<?>> next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                active--;
+                return;
+            }
+        }
+        start(next);
+    }
+
+    /**
+     * Wykonuje zadanie w puli bez limitu — dla callbacków klienta HTTP.
+     */
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(command);
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public synchronized int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            queue.clear();
+        }
+        delegate.shutdown();
+    }
+}
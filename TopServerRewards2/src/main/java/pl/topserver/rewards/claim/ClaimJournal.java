@@ -0,0 +1,517 @@
+package pl.topserver.rewards.claim;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Dziennik odbieranych nagród (append-only, mapowany do pamięci).
+ * <p>
+ * Przed wysłaniem "claim" do API zapisujemy CLAIMING, po potwierdzeniu przez
+ * API — CLAIMED, a po wydaniu nagrody DELIVERED (albo ABORTED, gdy API
+ * odmówiło albo zapytanie na pewno nie wyszło). Wpis CLAIMING bez odpowiedzi
+ * (timeout, zerwane połączenie, awaria serwera) oznacza nieznany wynik —
+ * przed wydaniem trzeba ponowić claim. Potwierdzone, ale niewydane nagrody
+ * można wydać od razu.
+ * <p>
+ * Zapisy są tanie: rekord trafia do zmapowanej pamięci, a synchronizacja na dysk
+ * (force) jest wspólna dla wszystkich zapisów z krótkiego okna (group commit).
+ * Gdy plik się zapełnia, wątek dziennika przepisuje niewydane nagrody do
+ * nowego pliku i podmienia go (rename) — wątek zapisujący nigdy nie czeka
+ * na kompaktowanie.
+ * <p>
+ * Nagłówek zajmuje cały slot rekordu, więc żaden rekord nie przecina granicy
+ * strony 4 KiB. Uszkodzony rekord (zła suma CRC) jest pomijany, a odczyt
+ * idzie dalej — jeden rozerwany zapis nie unieważnia kolejnych.
+ */
+public final class ClaimJournal {
+
+    private static final int MAGIC = 0x54535231; // "TSR1"
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 128;
+    private static final int HEADER_SIZE = RECORD_SIZE;
+    private static final int NAME_BYTES = RECORD_SIZE - 42;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int TYPE_CLAIMING = 1;
+    private static final int TYPE_DELIVERED = 2;
+    private static final int TYPE_ABORTED = 3;
+    private static final int TYPE_CLAIMED = 4;
+
+    private final File file;
+    private final Logger logger;
+    private final long flushDelayMillis;
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int writePos;
+    private final Map<Key, Pending> pending = new LinkedHashMap<>();
+    private final List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    private boolean flushScheduled;
+    private boolean compactScheduled;
+
+    private ClaimJournal(File file, Logger logger, long flushDelayMillis) {
+        this.file = file;
+        this.logger = logger;
+        this.flushDelayMillis = Math.max(0, flushDelayMillis);
+        this.flusher = file != null ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TopServerRewards-journal");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    /**
+     * Otwiera dziennik i odtwarza jego zawartość. Przy błędzie zwraca dziennik
+     * wyłączony, żeby plugin mógł działać dalej.
+     */
+    public static ClaimJournal open(File file, long flushDelayMillis, Logger logger) {
+        ClaimJournal journal = new ClaimJournal(file, logger, flushDelayMillis);
+        try {
+            journal.load();
+            return journal;
+        } catch (IOException e) {
+            logger.severe("Nie udalo sie otworzyc dziennika nagrod " + file.getName() + ": " + e.getMessage());
+            journal.close();
+            return disabled();
+        }
+    }
+
+    public static ClaimJournal disabled() {
+        return new ClaimJournal(null, null, 0);
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    // ---- zapis ----
+
+    /**
+     * Zapisuje zamiar odebrania głosu. Future kończy się, gdy rekord jest na dysku.
+     */
+    public CompletableFuture<Void> recordClaiming(UUID playerId, long voteId, String serverName) {
+        return append(TYPE_CLAIMING, playerId, voteId, serverName);
+    }
+
+    /**
+     * Zapisuje, że API potwierdziło odebranie głosu, ale nagroda nie jest jeszcze wydana.
+     */
+    public CompletableFuture<Void> recordClaimed(UUID playerId, long voteId, String serverName) {
+        return append(TYPE_CLAIMED, playerId, voteId, serverName);
+    }
+
+    public CompletableFuture<Void> recordDelivered(UUID playerId, long voteId) {
+        return append(TYPE_DELIVERED, playerId, voteId, null);
+    }
+
+    public CompletableFuture<Void> recordAborted(UUID playerId, long voteId) {
+        return append(TYPE_ABORTED, playerId, voteId, null);
+    }
+
+    private CompletableFuture<Void> append(int type, UUID playerId, long voteId, String serverName) {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (this) {
+            if (buffer == null) {
+                durable.complete(null);
+                return durable;
+            }
+            try {
+                // Kompaktowanie jeszcze trwa — powiększenie pliku nie rusza zapisanych rekordów
+                if (writePos + RECORD_SIZE > HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+                    capacity *= 2;
+                    map(capacity);
+                }
+
+                Key key = new Key(playerId, voteId);
+                long now = System.currentTimeMillis();
+                if (type == TYPE_CLAIMING || type == TYPE_CLAIMED)
+                    pending.put(key, new Pending(playerId, voteId, serverName, now, type == TYPE_CLAIMED));
+                else
+                    pending.remove(key);
+
+                writeRecord(buffer, writePos, type, playerId, voteId, now, serverName);
+                writePos += RECORD_SIZE;
+            } catch (IOException e) {
+                durable.completeExceptionally(e);
+                return durable;
+            }
+
+            waiting.add(durable);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flush, flushDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            if (!compactScheduled && writePos > HEADER_SIZE + (long) capacity * RECORD_SIZE * 3 / 4) {
+                compactScheduled = true;
+                flusher.execute(this::compact);
+            }
+        }
+        return durable;
+    }
+
+    /**
+     * Jeden force() dla wszystkich zapisów zebranych od poprzedniego.
+     */
+    private void flush() {
+        List<CompletableFuture<Void>> batch;
+        MappedByteBuffer target;
+        synchronized (this) {
+            batch = new ArrayList<>(waiting);
+            waiting.clear();
+            flushScheduled = false;
+            target = buffer;
+        }
+        try {
+            if (target != null)
+                target.force();
+            for (CompletableFuture<Void> future : batch)
+                future.complete(null);
+        } catch (RuntimeException e) {
+            logger.severe("Blad zapisu dziennika nagrod: " + e.getMessage());
+            for (CompletableFuture<Void> future : batch)
+                future.completeExceptionally(e);
+        }
+    }
+
+    // ---- odczyt i kompaktowanie ----
+
+    private void load() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs())
+            throw new IOException("nie mozna utworzyc katalogu " + parent);
+
+        // Pozostałość po kompaktowaniu przerwanym przed podmianą — dziennik jest nadal w starym pliku
+        Files.deleteIfExists(compactFile().toPath());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long existingRecords = Math.max(0, (channel.size() - HEADER_SIZE + RECORD_SIZE - 1) / RECORD_SIZE);
+        capacity = (int) Math.max(INITIAL_CAPACITY, existingRecords);
+        map(capacity);
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            if (channel.size() > HEADER_SIZE && buffer.getInt(HEADER_SIZE) != 0)
+                logger.warning("Dziennik nagrod ma nieznany format, zostanie nadpisany.");
+            clearFrom(HEADER_SIZE);
+            writeHeader(buffer);
+            buffer.force();
+            writePos = HEADER_SIZE;
+            return;
+        }
+
+        // Puste i uszkodzone sloty pomijamy, ale czytamy do końca pliku —
+        // strony mogły trafić na dysk w dowolnej kolejności
+        int limit = buffer.capacity();
+        int skipped = 0;
+        writePos = HEADER_SIZE;
+        for (int pos = HEADER_SIZE; pos + RECORD_SIZE <= limit; pos += RECORD_SIZE) {
+            int type = buffer.getInt(pos);
+            if (type == 0)
+                continue;
+            writePos = pos + RECORD_SIZE;
+            if (!checksumMatches(pos)) {
+                skipped++;
+                continue;
+            }
+
+            UUID playerId = new UUID(buffer.getLong(pos + 8), buffer.getLong(pos + 16));
+            long voteId = buffer.getLong(pos + 24);
+            Key key = new Key(playerId, voteId);
+            if (type == TYPE_CLAIMING || type == TYPE_CLAIMED)
+                pending.put(key, new Pending(playerId, voteId, readName(pos), buffer.getLong(pos + 32),
+                        type == TYPE_CLAIMED));
+            else
+                pending.remove(key);
+        }
+        if (skipped > 0)
+            logger.warning("Pominieto " + skipped + " uszkodzonych rekordow dziennika nagrod.");
+
+        compact();
+    }
+
+    private static void writeHeader(ByteBuffer target) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+    }
+
+    private File compactFile() {
+        return new File(file.getParentFile(), file.getName() + ".compact");
+    }
+
+    /**
+     * Przepisuje niewydane nagrody do nowego pliku i podmienia nim dziennik.
+     * <p>
+     * Stary plik nie jest ruszany aż do atomowego rename, a nowy jest przed
+     * nim w całości na dysku (force), więc po awarii zostaje jeden z dwóch
+     * kompletnych dzienników. Migawka i jej force() idą bez blokady; pod
+     * blokadą dopisujemy tylko rekordy dodane w międzyczasie. Wołane przy
+     * otwarciu i potem wyłącznie z wątku dziennika.
+     */
+    private void compact() {
+        List<Pending> snapshot;
+        int from;
+        synchronized (this) {
+            compactScheduled = false;
+            if (buffer == null)
+                return;
+            snapshot = new ArrayList<>(pending.values());
+            from = writePos;
+        }
+
+        File target = compactFile();
+        FileChannel newChannel = null;
+        try {
+            newChannel = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Co najmniej 4× więcej miejsca niż niewydanych nagród — zapas na dopisane w międzyczasie
+            int newCapacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, snapshot.size())) << 3);
+            MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) newCapacity * RECORD_SIZE);
+            writeHeader(newBuffer);
+            int pos = HEADER_SIZE;
+            for (Pending entry : snapshot) {
+                writeRecord(newBuffer, pos, entry.confirmed ? TYPE_CLAIMED : TYPE_CLAIMING, entry.playerId,
+                        entry.voteId, entry.createdAt, entry.serverName);
+                pos += RECORD_SIZE;
+            }
+            newBuffer.force();
+
+            synchronized (this) {
+                if (buffer == null)
+                    return;
+                int tail = writePos - from;
+                if (pos + (long) tail > HEADER_SIZE + (long) newCapacity * RECORD_SIZE) {
+                    // Tyle zapisów w trakcie, że się nie zmieszczą — spróbujemy przy kolejnym zapełnieniu
+                    return;
+                }
+                // Rekordy dopisane od migawki, w tej samej kolejności — odczyt odtworzy je na jej wierzchu
+                for (int offset = 0; offset < tail; offset += 8)
+                    newBuffer.putLong(pos + offset, buffer.getLong(from + offset));
+                pos += tail;
+                if (tail > 0)
+                    newBuffer.force();
+
+                Files.move(target.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                forceDirectory();
+
+                FileChannel oldChannel = channel;
+                channel = newChannel;
+                buffer = newBuffer;
+                capacity = newCapacity;
+                writePos = pos;
+                newChannel = null;
+                try {
+                    oldChannel.close();
+                } catch (IOException ignored) {
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Nie udalo sie skompaktowac dziennika nagrod: " + e.getMessage());
+        } finally {
+            if (newChannel != null) {
+                try {
+                    newChannel.close();
+                    Files.deleteIfExists(target.toPath());
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Utrwala rename w katalogu (Linux). Gdzie się nie da, zostaje zwykła gwarancja systemu plików.
+     */
+    private void forceDirectory() {
+        File parent = file.getAbsoluteFile().getParentFile();
+        try (FileChannel directory = FileChannel.open(parent.toPath(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException | RuntimeException ignored) {
+        }
+    }
+
+    private void map(int records) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) records * RECORD_SIZE);
+    }
+
+    private void clearFrom(int from) {
+        int limit = HEADER_SIZE + capacity * RECORD_SIZE;
+        for (int pos = from; pos < limit; pos += 8)
+            buffer.putLong(pos, 0L);
+    }
+
+    private static void writeRecord(ByteBuffer target, int pos, int type, UUID playerId, long voteId, long time,
+            String serverName) {
+        target.putLong(pos + 8, playerId.getMostSignificantBits());
+        target.putLong(pos + 16, playerId.getLeastSignificantBits());
+        target.putLong(pos + 24, voteId);
+        target.putLong(pos + 32, time);
+
+        byte[] name = serverName != null ? serverName.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = Math.min(name.length, NAME_BYTES);
+        // Nie tniemy w środku znaku UTF-8
+        while (length < name.length && length > 0 && (name[length] & 0xC0) == 0x80)
+            length--;
+        target.putShort(pos + 40, (short) length);
+        for (int i = 0; i < NAME_BYTES; i++)
+            target.put(pos + 42 + i, i < length ? name[i] : 0);
+
+        target.putInt(pos + 4, checksum(target, pos, type));
+        // Typ na końcu — rekord jest widoczny dopiero, gdy jest kompletny
+        target.putInt(pos, type);
+    }
+
+    private boolean checksumMatches(int pos) {
+        return buffer.getInt(pos + 4) == checksum(buffer, pos, buffer.getInt(pos));
+    }
+
+    private static int checksum(ByteBuffer source, int pos, int type) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        ByteBuffer body = source.duplicate();
+        body.position(pos + 8).limit(pos + RECORD_SIZE);
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private String readName(int pos) {
+        int length = Math.min(buffer.getShort(pos + 40), NAME_BYTES);
+        if (length <= 0)
+            return "";
+        byte[] name = new byte[length];
+        for (int i = 0; i < length; i++)
+            name[i] = buffer.get(pos + 42 + i);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Nagrody zapisane jako odbierane, ale nie wydane — do ponownego sprawdzenia i wydania.
+     */
+    public synchronized List<Pending> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    /**
+     * Czy głos nadal czeka na wydanie albo rozstrzygnięcie.
+     */
+    public synchronized boolean isPending(UUID playerId, long voteId) {
+        return pending.containsKey(new Key(playerId, voteId));
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+            for (CompletableFuture<Void> future : waiting)
+                future.complete(null);
+            waiting.clear();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warning("Blad zamykania dziennika nagrod: " + e.getMessage());
+                }
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Niewydana nagroda — odczytana z dziennika albo czekająca na powrót gracza.
+     * Niepotwierdzoną trzeba przed wydaniem odebrać w API jeszcze raz.
+     */
+    public static final class Pending {
+
+        private final UUID playerId;
+        private final long voteId;
+        private final String serverName;
+        private final long createdAt;
+        private final boolean confirmed;
+
+        public Pending(UUID playerId, long voteId, String serverName, long createdAt, boolean confirmed) {
+            this.playerId = playerId;
+            this.voteId = voteId;
+            this.serverName = serverName;
+            this.createdAt = createdAt;
+            this.confirmed = confirmed;
+        }
+
+        public UUID getPlayerId() {
+            return playerId;
+        }
+
+        public long getVoteId() {
+            return voteId;
+        }
+
+        public String getServerName() {
+            return serverName;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public boolean isConfirmed() {
+            return confirmed;
+        }
+    }
+
+    private static final class Key {
+
+        private final UUID playerId;
+        private final long voteId;
+
+        private Key(UUID playerId, long voteId) {
+            this.playerId = playerId;
+            this.voteId = voteId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return voteId == other.voteId && playerId.equals(other.playerId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(playerId, voteId);
+        }
+    }
+}
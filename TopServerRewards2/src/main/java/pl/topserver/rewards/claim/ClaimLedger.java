@@ -0,0 +1,56 @@
+package pl.topserver.rewards.claim;
+
+import java.util.UUID;
+
+/**
+ * Rejestr odbierań wspólny dla kilku serwerów za proxy.
+ * <p>
+ * {@link ClaimTracker} i {@link CooldownStore} działają w obrębie jednej JVM,
+ * więc gracz mógłby zacząć odbieranie na dwóch serwerach naraz. Rejestr daje
+ * krótką dzierżawę (lease) na czas odbierania i pilnuje cooldownu między
+ * serwerami. Na pojedynczym serwerze wystarcza {@link #local()}.
+ * <p>
+ * {@link #tryAcquire} może czekać na wspólną bazę, więc wołamy go tylko
+ * z wątków odbierania, nigdy z głównego.
+ */
+public interface ClaimLedger {
+
+    /** Wynik {@link #tryAcquire}: gracz odbiera właśnie nagrodę na innym serwerze. */
+    long IN_PROGRESS = -1L;
+
+    /**
+     * Próbuje objąć odbieranie gracza i zapisuje początek cooldownu.
+     *
+     * @return 0 jeśli się udało, {@link #IN_PROGRESS} jeśli gracz odbiera na
+     *         innym serwerze, albo liczba milisekund do końca cooldownu
+     */
+    long tryAcquire(UUID playerId, long now, long cooldownMillis);
+
+    /**
+     * Zwalnia dzierżawę po zakończeniu odbierania. Nie blokuje.
+     */
+    void release(UUID playerId);
+
+    void close();
+
+    /**
+     * Rejestr dla jednego serwera — lokalne {@link ClaimTracker} i
+     * {@link CooldownStore} już robią wszystko, co trzeba.
+     */
+    static ClaimLedger local() {
+        return new ClaimLedger() {
+            @Override
+            public long tryAcquire(UUID playerId, long now, long cooldownMillis) {
+                return 0L;
+            }
+
+            @Override
+            public void release(UUID playerId) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
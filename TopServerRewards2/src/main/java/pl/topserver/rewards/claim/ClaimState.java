@@ -0,0 +1,11 @@
+package pl.topserver.rewards.claim;
+
+/**
+ * Etapy odbierania nagrody przez jednego gracza.
+ */
+public enum ClaimState {
+    IDLE,
+    CHECKING,
+    CLAIMING,
+    DELIVERING
+}
@@ -0,0 +1,124 @@
+package pl.topserver.rewards.claim;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pilnuje, żeby gracz miał w danej chwili co najwyżej jedno odbieranie nagrody
+ * (check → claim → wydanie). Kolejna próba w trakcie trwającej jest odrzucana,
+ * zamiast wysyłać drugi raz te same zapytania do API i wydawać nagrodę podwójnie.
+ * Wszystkie przejścia między stanami są zliczane.
+ */
+public final class ClaimTracker {
+
+    private static final ClaimState[] STATES = ClaimState.values();
+
+    private final ConcurrentMap<UUID, Ticket> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder[] transitions = new LongAdder[STATES.length * STATES.length];
+    private final LongAdder rejected = new LongAdder();
+    private volatile Consumer<UUID> finishListener = playerId -> { };
+
+    public ClaimTracker() {
+        for (int i = 0; i < transitions.length; i++)
+            transitions[i] = new LongAdder();
+    }
+
+    /**
+     * Ustawia akcję wołaną po zakończeniu każdego odbierania, z wątku, który je zakończył.
+     */
+    public void setFinishListener(Consumer<UUID> finishListener) {
+        this.finishListener = finishListener;
+    }
+
+    /**
+     * Rozpoczyna odbieranie nagrody przez gracza.
+     *
+     * @return bilet trwającego odbierania albo null, jeśli gracz już odbiera nagrodę
+     */
+    public Ticket begin(UUID playerId, ClaimState initial) {
+        Ticket ticket = new Ticket(playerId, initial);
+        if (inFlight.putIfAbsent(playerId, ticket) != null) {
+            rejected.increment();
+            return null;
+        }
+        count(ClaimState.IDLE, initial);
+        return ticket;
+    }
+
+    public ClaimState getState(UUID playerId) {
+        Ticket ticket = inFlight.get(playerId);
+        return ticket != null ? ticket.getState() : ClaimState.IDLE;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public long getTransitionCount(ClaimState from, ClaimState to) {
+        return transitions[from.ordinal() * STATES.length + to.ordinal()].sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private void count(ClaimState from, ClaimState to) {
+        transitions[from.ordinal() * STATES.length + to.ordinal()].increment();
+    }
+
+    /**
+     * Jedno trwające odbieranie nagrody.
+     */
+    public final class Ticket {
+
+        private final UUID playerId;
+        private final AtomicReference<ClaimState> state;
+        private final long startedNanos = System.nanoTime();
+
+        private Ticket(UUID playerId, ClaimState initial) {
+            this.playerId = playerId;
+            this.state = new AtomicReference<>(initial);
+        }
+
+        public UUID getPlayerId() {
+            return playerId;
+        }
+
+        /**
+         * Czas rozpoczęcia odbierania (System.nanoTime).
+         */
+        public long getStartedNanos() {
+            return startedNanos;
+        }
+
+        public ClaimState getState() {
+            return state.get();
+        }
+
+        /**
+         * Przechodzi do kolejnego etapu, jeśli bilet jest w oczekiwanym stanie.
+         */
+        public boolean advance(ClaimState from, ClaimState to) {
+            if (!state.compareAndSet(from, to))
+                return false;
+            count(from, to);
+            return true;
+        }
+
+        /**
+         * Kończy odbieranie (sukces lub błąd). Wielokrotne wywołanie nic nie robi.
+         */
+        public void finish() {
+            ClaimState last = state.getAndSet(ClaimState.IDLE);
+            if (last == ClaimState.IDLE)
+                return;
+            count(last, ClaimState.IDLE);
+            inFlight.remove(playerId, this);
+            finishListener.accept(playerId);
+        }
+    }
+}
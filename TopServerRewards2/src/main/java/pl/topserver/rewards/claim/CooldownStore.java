@@ -0,0 +1,133 @@
+package pl.topserver.rewards.claim;
+
+import java.util.UUID;
+
+/**
+ * Cooldowny komendy odbierania nagrody.
+ * Tablica z adresowaniem otwartym trzymająca UUID jako dwie liczby long
+ * i czas ostatniego użycia jako prymitywny long — bez obiektów na wpis.
+ * Wygasłe wpisy są usuwane okresowo (przy dostępie), więc rozmiar zależy
+ * tylko od liczby graczy w oknie cooldownu, a nie od wszystkich, którzy
+ * kiedykolwiek odbierali nagrodę. Metody są synchronizowane, więc można
+ * ich używać z głównego wątku i z wątków asynchronicznych.
+ */
+public final class CooldownStore {
+
+    private static final int MIN_CAPACITY = 64;
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000L;
+
+    private long cooldownMillis;
+    private long[] most;
+    private long[] least;
+    // 0 = pusty slot
+    private long[] stamps;
+    private int size;
+    private long lastSweep;
+
+    public CooldownStore(long cooldownMillis) {
+        this.cooldownMillis = cooldownMillis;
+        allocate(MIN_CAPACITY);
+    }
+
+    public synchronized void setCooldownMillis(long cooldownMillis) {
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * Próbuje rozpocząć odbieranie nagrody przez gracza.
+     *
+     * @return 0 jeśli cooldown minął (czas użycia zostaje zapisany),
+     *         w przeciwnym razie liczba milisekund do końca cooldownu
+     */
+    public synchronized long tryAcquire(UUID playerId, long now) {
+        if (now - lastSweep >= SWEEP_INTERVAL_MILLIS)
+            sweep(now);
+
+        long msb = playerId.getMostSignificantBits();
+        long lsb = playerId.getLeastSignificantBits();
+        int slot = find(msb, lsb);
+
+        if (stamps[slot] != 0) {
+            long elapsed = now - stamps[slot];
+            if (elapsed < cooldownMillis)
+                return cooldownMillis - elapsed;
+            stamps[slot] = now;
+            return 0;
+        }
+
+        if ((size + 1) * 4 > stamps.length * 3) {
+            sweep(now);
+            slot = find(msb, lsb);
+        }
+        most[slot] = msb;
+        least[slot] = lsb;
+        stamps[slot] = now;
+        size++;
+        return 0;
+    }
+
+    /**
+     * Usuwa wygasłe wpisy i dopasowuje rozmiar tablicy do liczby aktywnych.
+     */
+    public synchronized void sweep(long now) {
+        lastSweep = now;
+
+        long[] oldMost = most;
+        long[] oldLeast = least;
+        long[] oldStamps = stamps;
+
+        int live = 0;
+        for (long stamp : oldStamps) {
+            if (stamp != 0 && now - stamp < cooldownMillis)
+                live++;
+        }
+
+        // Zapełnienie po przebudowie maksymalnie 50%
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, live * 2 - 1)) << 1));
+        for (int i = 0; i < oldStamps.length; i++) {
+            long stamp = oldStamps[i];
+            if (stamp == 0 || now - stamp >= cooldownMillis)
+                continue;
+            int slot = find(oldMost[i], oldLeast[i]);
+            most[slot] = oldMost[i];
+            least[slot] = oldLeast[i];
+            stamps[slot] = stamp;
+        }
+        size = live;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized int capacity() {
+        return stamps.length;
+    }
+
+    public synchronized void clear() {
+        allocate(MIN_CAPACITY);
+        size = 0;
+    }
+
+    private void allocate(int capacity) {
+        most = new long[capacity];
+        least = new long[capacity];
+        stamps = new long[capacity];
+    }
+
+    /**
+     * Zwraca slot z danym kluczem albo pierwszy pusty slot (sondowanie liniowe).
+     */
+    private int find(long msb, long lsb) {
+        int mask = stamps.length - 1;
+        int slot = hash(msb, lsb) & mask;
+        while (stamps[slot] != 0 && (most[slot] != msb || least[slot] != lsb))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
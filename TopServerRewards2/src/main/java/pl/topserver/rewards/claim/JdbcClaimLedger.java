@@ -0,0 +1,391 @@
+package pl.topserver.rewards.claim;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ClaimLedger} w bazie SQL przez JDBC — SQLite na wspólnym dysku albo
+ * MySQL/MariaDB (sterowniki obu są w Spigocie), a także każda baza zgodna
+ * ze zwykłym SQL.
+ * <p>
+ * Jeden wiersz na gracza: który serwer trzyma dzierżawę, do kiedy, i do
+ * kiedy trwa cooldown. Dzierżawa jest krótka, więc po awarii serwera gracz
+ * odblokowuje się sam; trwające odbierania są co pół dzierżawy przedłużane.
+ * Połączenie, które długo leżało bezczynne albo zgłosiło błąd, jest
+ * sprawdzane i w razie potrzeby otwierane od nowa (wait_timeout, failover).
+ * Cooldowny znane z bazy są pamiętane lokalnie — gracz spamujący komendą
+ * nie generuje zapytań. Zwolnienia dzierżaw są zbierane i zapisywane jednym
+ * batchem.
+ * <p>
+ * Gdy baza nie odpowiada, odbieranie jest przepuszczane (lokalne zabezpieczenia
+ * nadal działają), a błąd trafia do logu.
+ */
+public final class JdbcClaimLedger implements ClaimLedger {
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z0-9_]{1,64}");
+    private static final long ERROR_LOG_INTERVAL_MILLIS = 60_000L;
+    /** Po takim czasie bez użycia połączenie jest sprawdzane przed zapytaniem. */
+    private static final long IDLE_VALIDATION_MILLIS = 30_000L;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    /** Podstawowy kod błędu SQLite dla naruszenia ograniczenia. */
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    private final Logger logger;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String nodeId;
+    private final long leaseMillis;
+    private final long flushDelayMillis;
+
+    private final String acquireSql;
+    private final String selectSql;
+    private final String insertSql;
+    private final String releaseSql;
+    private final String renewSql;
+
+    private final Object connectionLock = new Object();
+    private Connection connection;
+    private long lastUsedMillis;
+    private boolean closed;
+
+    /** Cooldowny widziane w bazie: gracz → koniec cooldownu (ms). */
+    private final Map<UUID, Long> knownCooldowns = new ConcurrentHashMap<>();
+    /** Gracze, których dzierżawę trzyma ten serwer. */
+    private final Set<UUID> held = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<UUID> releases = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    private long lastErrorLog;
+
+    private JdbcClaimLedger(Connection connection, String url, String user, String password, String table,
+            String nodeId, long leaseMillis, long flushDelayMillis, Logger logger) {
+        this.connection = connection;
+        this.lastUsedMillis = System.currentTimeMillis();
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.nodeId = nodeId;
+        this.leaseMillis = leaseMillis;
+        this.flushDelayMillis = flushDelayMillis;
+        this.logger = logger;
+
+        acquireSql = "UPDATE " + table + " SET node = ?, lease_until = ?, cooldown_until = ?"
+                + " WHERE player_id = ? AND (lease_until < ? OR node = ?) AND cooldown_until <= ?";
+        selectSql = "SELECT node, lease_until, cooldown_until FROM " + table + " WHERE player_id = ?";
+        insertSql = "INSERT INTO " + table + " (player_id, node, lease_until, cooldown_until) VALUES (?, ?, ?, ?)";
+        releaseSql = "UPDATE " + table + " SET lease_until = 0 WHERE player_id = ? AND node = ?";
+        renewSql = "UPDATE " + table + " SET lease_until = ? WHERE player_id = ? AND node = ? AND lease_until > 0";
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TopServerRewards-ledger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewEvery = Math.max(1000L, leaseMillis / 2);
+        flusher.scheduleWithFixedDelay(this::renewLeases, renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Łączy się z bazą i zakłada tabelę. Przy błędzie zwraca {@link ClaimLedger#local()}.
+     */
+    public static ClaimLedger open(String url, String user, String password, String table, String nodeId,
+            long leaseMillis, long flushDelayMillis, Logger logger) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            logger.severe("Niepoprawna nazwa tabeli claim-ledger: " + table);
+            return ClaimLedger.local();
+        }
+
+        Connection connection = null;
+        try {
+            connection = connect(url, user, password);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table + " ("
+                        + "player_id CHAR(36) NOT NULL PRIMARY KEY, "
+                        + "node VARCHAR(64) NOT NULL, "
+                        + "lease_until BIGINT NOT NULL, "
+                        + "cooldown_until BIGINT NOT NULL)");
+                // Wiersze bez dzierżawy i cooldownu nic już nie blokują
+                long now = System.currentTimeMillis();
+                statement.executeUpdate("DELETE FROM " + table
+                        + " WHERE lease_until < " + now + " AND cooldown_until < " + now);
+            }
+        } catch (SQLException e) {
+            logger.severe("Nie udalo sie polaczyc z baza claim-ledger: " + e.getMessage());
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            return ClaimLedger.local();
+        }
+
+        logger.info("Wspolny rejestr odbieran: " + url + " (serwer " + nodeId + ")");
+        return new JdbcClaimLedger(connection, url, user, password, table, nodeId, leaseMillis, flushDelayMillis,
+                logger);
+    }
+
+    private static Connection connect(String url, String user, String password) throws SQLException {
+        return user.isEmpty()
+                ? DriverManager.getConnection(url)
+                : DriverManager.getConnection(url, user, password);
+    }
+
+    /**
+     * Zwraca działające połączenie, w razie potrzeby otwierając nowe.
+     * Wołać z blokadą connectionLock.
+     */
+    private Connection connection() throws SQLException {
+        if (closed)
+            throw new SQLException("rejestr zamkniety");
+        long now = System.currentTimeMillis();
+        if (connection != null && now - lastUsedMillis >= IDLE_VALIDATION_MILLIS
+                && !connection.isValid(VALIDATION_TIMEOUT_SECONDS))
+            discardConnection();
+        if (connection == null) {
+            connection = connect(url, user, password);
+            logger.info("Ponownie polaczono z baza claim-ledger.");
+        }
+        lastUsedMillis = now;
+        return connection;
+    }
+
+    /**
+     * Po błędzie SQL sprawdza połączenie — zerwane zostanie otwarte od nowa
+     * przy następnym zapytaniu. Wołać z blokadą connectionLock.
+     */
+    private void checkConnection() {
+        try {
+            if (connection != null && !connection.isValid(VALIDATION_TIMEOUT_SECONDS))
+                discardConnection();
+        } catch (SQLException e) {
+            discardConnection();
+        }
+    }
+
+    private void discardConnection() {
+        if (connection == null)
+            return;
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+        connection = null;
+    }
+
+    @Override
+    public long tryAcquire(UUID playerId, long now, long cooldownMillis) {
+        Long cooldownUntil = knownCooldowns.get(playerId);
+        if (cooldownUntil != null) {
+            if (cooldownUntil > now)
+                return cooldownUntil - now;
+            knownCooldowns.remove(playerId, cooldownUntil);
+        }
+
+        String id = playerId.toString();
+        long leaseUntil = now + leaseMillis;
+        long newCooldownUntil = now + cooldownMillis;
+        try {
+            synchronized (connectionLock) {
+                // Zwolnienie tego gracza może jeszcze czekać w kolejce. Pod tą samą
+                // blokadą, co flush wątku rejestru — inaczej jego spóźniony UPDATE
+                // i held.remove zdjęłyby dzierżawę, którą zaraz weźmiemy
+                if (held.contains(playerId))
+                    flush();
+
+                Connection connection = connection();
+                try (PreparedStatement update = connection.prepareStatement(acquireSql)) {
+                    update.setString(1, nodeId);
+                    update.setLong(2, leaseUntil);
+                    update.setLong(3, newCooldownUntil);
+                    update.setString(4, id);
+                    update.setLong(5, now);
+                    update.setString(6, nodeId);
+                    update.setLong(7, now);
+                    if (update.executeUpdate() == 1)
+                        return acquired(playerId, newCooldownUntil);
+                }
+
+                try (PreparedStatement select = connection.prepareStatement(selectSql)) {
+                    select.setString(1, id);
+                    try (ResultSet row = select.executeQuery()) {
+                        if (row.next())
+                            return rejected(playerId, now, row.getString(1), row.getLong(2), row.getLong(3));
+                    }
+                }
+
+                try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                    insert.setString(1, id);
+                    insert.setString(2, nodeId);
+                    insert.setLong(3, leaseUntil);
+                    insert.setLong(4, newCooldownUntil);
+                    insert.executeUpdate();
+                    return acquired(playerId, newCooldownUntil);
+                } catch (SQLException e) {
+                    // Inny serwer wstawił wiersz w międzyczasie — traktujemy jak trwające odbieranie
+                    if (isDuplicateKey(e))
+                        return IN_PROGRESS;
+                    throw e;
+                }
+            }
+        } catch (SQLException e) {
+            synchronized (connectionLock) {
+                checkConnection();
+            }
+            logError("Blad bazy claim-ledger: " + e.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * Czy błąd to naruszenie klucza głównego. Sterowniki zgodne z JDBC 4 rzucają
+     * {@link SQLIntegrityConstraintViolationException} albo podają SQLState z
+     * klasy 23; sterownik SQLite nie podaje SQLState, tylko kod SQLITE_CONSTRAINT.
+     */
+    private static boolean isDuplicateKey(SQLException e) {
+        if (e instanceof SQLIntegrityConstraintViolationException)
+            return true;
+        String state = e.getSQLState();
+        if (state != null)
+            return state.startsWith("23");
+        return (e.getErrorCode() & 0xff) == SQLITE_CONSTRAINT;
+    }
+
+    private long acquired(UUID playerId, long cooldownUntil) {
+        held.add(playerId);
+        knownCooldowns.put(playerId, cooldownUntil);
+        return 0L;
+    }
+
+    private long rejected(UUID playerId, long now, String node, long leaseUntil, long cooldownUntil) {
+        if (leaseUntil >= now && !nodeId.equals(node))
+            return IN_PROGRESS;
+        if (cooldownUntil > now) {
+            knownCooldowns.put(playerId, cooldownUntil);
+            return cooldownUntil - now;
+        }
+        // Wiersz zmienił się między UPDATE a SELECT — niech gracz spróbuje jeszcze raz
+        return IN_PROGRESS;
+    }
+
+    @Override
+    public void release(UUID playerId) {
+        if (!held.contains(playerId))
+            return;
+        releases.add(playerId);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flusher.schedule(this::flush, flushDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // close() — zwolnienia zapisze ostatni flush
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Zapisuje zebrane zwolnienia jednym batchem. Pobranie kolejki, UPDATE
+     * i zdjęcie graczy z held są pod connectionLock, więc nie przeplatają
+     * się z {@link #tryAcquire} tego samego gracza.
+     */
+    private void flush() {
+        flushScheduled.set(false);
+        synchronized (connectionLock) {
+            List<UUID> batch = new ArrayList<>();
+            UUID next;
+            while ((next = releases.poll()) != null)
+                batch.add(next);
+            if (batch.isEmpty())
+                return;
+
+            try (PreparedStatement release = connection().prepareStatement(releaseSql)) {
+                for (UUID playerId : batch) {
+                    release.setString(1, playerId.toString());
+                    release.setString(2, nodeId);
+                    release.addBatch();
+                }
+                release.executeBatch();
+            } catch (SQLException e) {
+                checkConnection();
+                // Dzierżawy i tak wygasną po lease-seconds
+                logError("Nie udalo sie zwolnic dzierzaw claim-ledger: " + e.getMessage());
+            }
+            for (UUID playerId : batch)
+                held.remove(playerId);
+        }
+
+        long now = System.currentTimeMillis();
+        knownCooldowns.values().removeIf(until -> until <= now);
+    }
+
+    /**
+     * Przedłuża dzierżawy trwających odbierań, żeby odbieranie dłuższe niż
+     * lease-seconds (wolne API, wiele głosów naraz) nie zostało przejęte
+     * przez inny serwer. Zwolnione dzierżawy (lease_until = 0) zostają.
+     */
+    void renewLeases() {
+        if (held.isEmpty())
+            return;
+        long leaseUntil = System.currentTimeMillis() + leaseMillis;
+        try {
+            synchronized (connectionLock) {
+                try (PreparedStatement renew = connection().prepareStatement(renewSql)) {
+                    for (UUID playerId : held) {
+                        if (releases.contains(playerId))
+                            continue;
+                        renew.setLong(1, leaseUntil);
+                        renew.setString(2, playerId.toString());
+                        renew.setString(3, nodeId);
+                        renew.addBatch();
+                    }
+                    renew.executeBatch();
+                }
+            }
+        } catch (SQLException e) {
+            synchronized (connectionLock) {
+                checkConnection();
+            }
+            logError("Nie udalo sie przedluzyc dzierzaw claim-ledger: " + e.getMessage());
+        }
+    }
+
+    private void logError(String message) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (now - lastErrorLog < ERROR_LOG_INTERVAL_MILLIS)
+                return;
+            lastErrorLog = now;
+        }
+        logger.warning(message);
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdownNow();
+        flush();
+        synchronized (connectionLock) {
+            closed = true;
+            discardConnection();
+        }
+    }
+}
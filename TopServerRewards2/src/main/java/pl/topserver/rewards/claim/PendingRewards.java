@@ -0,0 +1,108 @@
+package pl.topserver.rewards.claim;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Nagrody niewydane — bo gracz wyszedł w trakcie odbierania, odpowiedź API
+ * nie dotarła, albo serwer padł przed wydaniem (odtworzone z dziennika).
+ * <p>
+ * Trwałość zapewnia {@link ClaimJournal}: wpis zostaje w nim do chwili
+ * wydania albo odmowy API, więc ta kolejka trzyma tylko kopię w pamięci i przy
+ * wejściu gracza nie czyta nic z dysku. Chwilę po wejściu gracza wpisy są
+ * przekazywane dalej — niepotwierdzone najpierw wracają do API.
+ * <p>
+ * Wszystkie metody wywołujemy z głównego wątku.
+ */
+public class PendingRewards implements Listener {
+
+    private final Plugin plugin;
+    private final Consumer<ClaimJournal.Pending> delivery;
+    private final Map<UUID, Queue<ClaimJournal.Pending>> pending = new HashMap<>();
+
+    private long joinDelayTicks = 40L;
+
+    public PendingRewards(Plugin plugin, Consumer<ClaimJournal.Pending> delivery) {
+        this.plugin = plugin;
+        this.delivery = delivery;
+    }
+
+    public void setJoinDelaySeconds(int joinDelaySeconds) {
+        this.joinDelayTicks = Math.max(0, joinDelaySeconds) * 20L;
+    }
+
+    public void start(List<ClaimJournal.Pending> recovered) {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+
+        if (recovered.isEmpty())
+            return;
+
+        plugin.getLogger().info("Odtworzono z dziennika " + recovered.size() + " niewydanych nagrod do sprawdzenia.");
+        for (ClaimJournal.Pending entry : recovered)
+            add(entry);
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+    }
+
+    /**
+     * Dodaje nagrodę do wydania. Jeśli gracz jest online, dostanie ją po krótkiej chwili.
+     */
+    public void add(ClaimJournal.Pending entry) {
+        UUID playerId = entry.getPlayerId();
+        Queue<ClaimJournal.Pending> queue = pending.get(playerId);
+        boolean first = queue == null;
+        if (first) {
+            queue = new ArrayDeque<>();
+            pending.put(playerId, queue);
+        }
+        queue.add(entry);
+
+        if (first && Bukkit.getPlayer(playerId) != null)
+            scheduleReady(playerId);
+    }
+
+    /**
+     * Odkłada nagrodę do następnego wejścia gracza, nawet jeśli jest online —
+     * dla wpisów, których nie udało się teraz rozstrzygnąć (API nie odpowiada),
+     * żeby nie ponawiać zapytań co kilka sekund.
+     */
+    public void defer(ClaimJournal.Pending entry) {
+        pending.computeIfAbsent(entry.getPlayerId(), id -> new ArrayDeque<>()).add(entry);
+    }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        if (pending.containsKey(playerId))
+            scheduleReady(playerId);
+    }
+
+    private void scheduleReady(UUID playerId) {
+        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            // Gracz mógł znowu wyjść — wtedy czekamy na kolejne wejście
+            if (Bukkit.getPlayer(playerId) == null)
+                return;
+            Queue<ClaimJournal.Pending> queue = pending.remove(playerId);
+            if (queue != null)
+                queue.forEach(delivery);
+        }, joinDelayTicks);
+    }
+
+    public int getPlayerCount() {
+        return pending.size();
+    }
+}
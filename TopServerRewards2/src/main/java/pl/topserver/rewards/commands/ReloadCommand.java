@@ -1,6 +1,5 @@
 package pl.topserver.rewards.commands;
 
-import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import pl.topserver.rewards.TopServerRewards;
 
@@ -14,16 +13,13 @@ public class ReloadCommand {
 
     public void execute(CommandSender sender) {
         if (!sender.hasPermission("topserver.admin")) {
-            String msg = plugin.getConfig().getString("messages.reload-no-permission",
-                    "&cNie masz uprawnień do przeładowania pluginu!");
-            sender.sendMessage(ChatColor.translateAlternateColorCodes('&', msg));
+            plugin.getMessages().get("messages.reload-no-permission").send(sender);
             return;
         }
 
         plugin.reloadPluginConfig();
 
-        String msg = plugin.getConfig().getString("messages.reload-success",
-                "&aPomyślnie przeładowano konfigurację TopServerRewards!");
-        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', msg));
+        // Katalog po przeładowaniu — wiadomość może być już zmieniona
+        plugin.getMessages().get("messages.reload-success").send(sender);
     }
 }
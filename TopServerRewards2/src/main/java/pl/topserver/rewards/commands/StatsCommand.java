@@ -0,0 +1,57 @@
+package pl.topserver.rewards.commands;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import pl.topserver.rewards.TopServerRewards;
+import pl.topserver.rewards.stats.ClaimStats;
+import pl.topserver.rewards.stats.LatencyHistogram;
+
+import java.util.Locale;
+
+public class StatsCommand {
+
+    private final TopServerRewards plugin;
+
+    public StatsCommand(TopServerRewards plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(CommandSender sender) {
+        if (!sender.hasPermission("topserver.admin")) {
+            plugin.getMessages().get("messages.admin-no-permission").send(sender);
+            return;
+        }
+
+        ClaimStats stats = plugin.getStats();
+
+        send(sender, "&6═══════ &eTopServerRewards - statystyki &6═══════");
+        send(sender, "&7Odebrane: &a" + stats.getSuccesses() + " &7Brak nagrody: &f" + stats.getNoReward()
+                + " &7Odrzucone: &e" + stats.getRejections());
+        send(sender, "&7Zapytania API: &f" + stats.getApiRequests() + " &7Bledy API: &c" + stats.getApiErrors());
+        send(sender, "&8Czasy (p50 / p95 / p99 / max):");
+        sendHistogram(sender, "API do naglowkow", stats.getApiHeaders());
+        sendHistogram(sender, "check", stats.getCheck());
+        sendHistogram(sender, "claim", stats.getClaim());
+        sendHistogram(sender, "wydanie nagrody", stats.getDelivery());
+        sendHistogram(sender, "calosc odbierania", stats.getEndToEnd());
+    }
+
+    private void sendHistogram(CommandSender sender, String name, LatencyHistogram histogram) {
+        long count = histogram.getCount();
+        if (count == 0) {
+            send(sender, "&7" + name + ": &8brak pomiarow");
+            return;
+        }
+        send(sender, "&7" + name + ": &f" + format(histogram.getPercentileMillis(50)) + " &7/ &f"
+                + format(histogram.getPercentileMillis(95)) + " &7/ &f" + format(histogram.getPercentileMillis(99))
+                + " &7/ &f" + format(histogram.getMaxMillis()) + "ms &8(" + count + ")");
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, millis < 10 ? "%.2f" : "%.0f", millis);
+    }
+
+    private void send(CommandSender sender, String text) {
+        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', text));
+    }
+}
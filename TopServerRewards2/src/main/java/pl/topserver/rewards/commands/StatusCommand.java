@@ -0,0 +1,75 @@
+package pl.topserver.rewards.commands;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+import pl.topserver.rewards.TopServerRewards;
+import pl.topserver.rewards.api.AdaptiveTimeout;
+import pl.topserver.rewards.api.CircuitBreaker;
+import pl.topserver.rewards.api.TopServerApi;
+import pl.topserver.rewards.claim.ClaimExecutor;
+import pl.topserver.rewards.rewards.DeliveryScheduler;
+
+import java.util.Locale;
+
+public class StatusCommand {
+
+    private final TopServerRewards plugin;
+
+    public StatusCommand(TopServerRewards plugin) {
+        this.plugin = plugin;
+    }
+
+    public void execute(CommandSender sender) {
+        if (!sender.hasPermission("topserver.admin")) {
+            plugin.getMessages().get("messages.admin-no-permission").send(sender);
+            return;
+        }
+
+        TopServerApi api = plugin.getApi();
+        CircuitBreaker breaker = api.getCircuitBreaker();
+        AdaptiveTimeout timeout = api.getTimeout();
+        CircuitBreaker.State state = breaker.getState();
+
+        String stateColor;
+        switch (state) {
+            case OPEN:
+                stateColor = "&c";
+                break;
+            case HALF_OPEN:
+                stateColor = "&e";
+                break;
+            default:
+                stateColor = "&a";
+        }
+
+        send(sender, "&6═══════ &eTopServerRewards - status &6═══════");
+        send(sender, "&7Bezpiecznik API: " + stateColor + state
+                + (state == CircuitBreaker.State.OPEN ? " &7(jeszcze " + breaker.getRemainingOpenSeconds() + "s)" : ""));
+        send(sender, "&7Bledy: &f" + breaker.getFailureRate() + "% &7Wolne: &f" + breaker.getSlowCallRate()
+                + "% &7(ostatnie " + breaker.getBufferedCalls() + " zapytan)");
+        send(sender, "&7Odrzucone przez bezpiecznik: &f" + breaker.getRejectedCalls());
+        send(sender, "&7Timeout: &f" + timeout.current().toMillis() + "ms &7(p50 " + timeout.getP50Millis()
+                + "ms, p99 " + timeout.getP99Millis() + "ms)");
+        send(sender, "&7Trwajace odbierania: &f" + plugin.getClaimTracker().getInFlightCount());
+
+        ClaimExecutor executor = plugin.getClaimExecutor();
+        send(sender, "&7Pula odbierania: &f" + executor.getActiveCount() + "/" + executor.getMaxConcurrent()
+                + " &7aktywnych, &f" + executor.getQueueDepth() + "/" + executor.getQueueCapacity()
+                + " &7w kolejce, &f" + executor.getRejectedCount() + " &7odrzuconych"
+                + (executor.isVirtualThreads() ? " &8(watki wirtualne)" : ""));
+
+        DeliveryScheduler delivery = plugin.getDeliveryScheduler();
+        send(sender, "&7Wydawanie nagrod: &f" + delivery.getQueueLength() + " &7w kolejce, ostatni tick &f"
+                + format(delivery.getLastTickMillis()) + "ms &7(" + delivery.getLastTickItems() + "), srednio &f"
+                + format(delivery.getAverageTickMillis()) + "ms&7, max &f" + format(delivery.getMaxTickMillis())
+                + "ms &7/ budzet " + format(delivery.getBudgetMillis()) + "ms");
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.2f", millis);
+    }
+
+    private void send(CommandSender sender, String text) {
+        sender.sendMessage(ChatColor.translateAlternateColorCodes('&', text));
+    }
+}
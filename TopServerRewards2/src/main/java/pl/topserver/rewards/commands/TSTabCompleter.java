@@ -21,12 +21,12 @@ public class TSTabCompleter implements TabCompleter {
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
             List<String> completions = new ArrayList<>();
-            String claimSub = plugin.getConfig().getString("commands.claim-sub", "odbierz");
-
-            completions.add(claimSub);
+            completions.add(plugin.getSettings().getClaimSub());
 
             if (sender.hasPermission("topserver.admin")) {
                 completions.add("reload");
+                completions.add("status");
+                completions.add("stats");
             }
 
             String input = args[0].toLowerCase();
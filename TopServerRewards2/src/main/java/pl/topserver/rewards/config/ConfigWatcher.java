@@ -0,0 +1,147 @@
+package pl.topserver.rewards.config;
+
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Obserwuje config.yml i po zmianie buduje nowe {@link PluginSettings}.
+ * <p>
+ * Edytory często zapisują plik kilka razy pod rząd, więc przeładowanie
+ * startuje dopiero po chwili ciszy (debounce). Parsowanie YAML odbywa się na
+ * osobnym wątku, a na główny trafia tylko gotowa migawka.
+ */
+public class ConfigWatcher {
+
+    private static final String CONFIG_FILE = "config.yml";
+
+    private final Plugin plugin;
+    private final long debounceMillis;
+    private final Consumer<PluginSettings> onReload;
+
+    private WatchService watchService;
+    private ScheduledExecutorService worker;
+    private ScheduledFuture<?> pendingReload;
+
+    public ConfigWatcher(Plugin plugin, long debounceMillis, Consumer<PluginSettings> onReload) {
+        this.plugin = plugin;
+        this.debounceMillis = Math.max(0, debounceMillis);
+        this.onReload = onReload;
+    }
+
+    public void start() {
+        Path folder = plugin.getDataFolder().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            folder.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Nie mozna obserwowac config.yml: " + e.getMessage());
+            return;
+        }
+
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "TopServerRewards-config-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread watcher = new Thread(this::watch, "TopServerRewards-config-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+            }
+            watchService = null;
+        }
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (context instanceof Path && ((Path) context).getFileName().toString().equals(CONFIG_FILE))
+                        changed = true;
+                }
+                if (changed)
+                    scheduleReload();
+                if (!key.reset())
+                    return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stop()
+        }
+    }
+
+    private synchronized void scheduleReload() {
+        ScheduledExecutorService executor = worker;
+        if (executor == null)
+            return;
+        if (pendingReload != null)
+            pendingReload.cancel(false);
+        pendingReload = executor.schedule(this::reload, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void reload() {
+        File file = new File(plugin.getDataFolder(), CONFIG_FILE);
+        if (!file.exists())
+            return;
+
+        // Tak jak JavaPlugin.reloadConfig(): plik użytkownika + domyślne wartości z JAR.
+        // loadConfiguration() przy błędzie zwraca pusty config — a wtedy np. server-ip
+        // byłby pusty, więc przy niepełnym zapisie albo literówce zostajemy przy starych ustawieniach.
+        YamlConfiguration config = new YamlConfiguration();
+        try {
+            config.load(file);
+        } catch (IOException | InvalidConfigurationException e) {
+            plugin.getLogger().warning("Nie mozna wczytac zmienionego config.yml, zostaja poprzednie ustawienia: "
+                    + e.getMessage());
+            return;
+        }
+        try (InputStream defaults = plugin.getResource(CONFIG_FILE)) {
+            if (defaults != null)
+                config.setDefaults(YamlConfiguration.loadConfiguration(
+                        new InputStreamReader(defaults, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            plugin.getLogger().warning("Nie mozna wczytac domyslnego config.yml: " + e.getMessage());
+        }
+
+        PluginSettings settings = PluginSettings.load(config, plugin.getLogger());
+        if (!plugin.isEnabled())
+            return;
+        Bukkit.getScheduler().runTask(plugin, () -> onReload.accept(settings));
+    }
+}
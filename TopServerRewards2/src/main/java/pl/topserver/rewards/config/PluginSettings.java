@@ -0,0 +1,267 @@
+package pl.topserver.rewards.config;
+
+import org.bukkit.configuration.Configuration;
+
+import pl.topserver.rewards.api.AdaptiveTimeout;
+import pl.topserver.rewards.api.CircuitBreaker;
+import pl.topserver.rewards.messages.MessageCatalog;
+import pl.topserver.rewards.rewards.RewardPlan;
+
+import java.util.logging.Logger;
+
+/**
+ * Niezmienna migawka ustawień z config.yml.
+ * <p>
+ * Budowana raz przy starcie i przy każdym przeładowaniu, a potem publikowana
+ * jednym zapisem do pola volatile. Komendy, tab-complete i wątki odbierania
+ * czytają z niej zamiast z getConfig(), więc zawsze widzą spójny komplet
+ * wartości — stary albo nowy, nigdy mieszankę.
+ * <p>
+ * Można ją budować poza głównym wątkiem.
+ */
+public final class PluginSettings {
+
+    private final String apiUrl;
+    private final String serverIp;
+    private final String mainCommand;
+    private final String claimSub;
+    private final long claimCooldownMillis;
+    private final int claimAllMaxVotes;
+    private final int claimAllParallel;
+
+    private final long noRewardCacheTtlMillis;
+    private final int noRewardCacheMaxSize;
+
+    private final boolean virtualThreads;
+    private final int claimThreads;
+    private final int maxConcurrentClaims;
+    private final int claimQueueSize;
+
+    private final boolean circuitBreakerEnabled;
+    private final int breakerWindowSize;
+    private final int breakerMinimumCalls;
+    private final int breakerFailureRate;
+    private final int breakerSlowCallRate;
+    private final long breakerSlowCallMillis;
+    private final long breakerOpenMillis;
+    private final int breakerHalfOpenCalls;
+    private final long timeoutMinMillis;
+    private final long timeoutMaxMillis;
+
+    private final boolean votePollerEnabled;
+    private final boolean votePollerBatch;
+    private final int votePollerIntervalSeconds;
+    private final int votePollerBatchSize;
+
+    private final double deliveryTickBudgetMillis;
+    private final int pendingJoinDelaySeconds;
+    private final int broadcastWindowSeconds;
+    private final int broadcastMaxNames;
+
+    private final boolean joinPrefetchEnabled;
+    private final long joinPrefetchDelayMillis;
+    private final long joinPrefetchJitterMillis;
+    private final int joinPrefetchMaxPerSecond;
+    private final boolean joinPrefetchNotify;
+
+    private final MessageCatalog messages;
+    private final RewardPlan rewardPlan;
+
+    private PluginSettings(Configuration config, Logger logger) {
+        apiUrl = config.getString("api-url", "https://topserver.pl/api_rewards.php");
+        serverIp = config.getString("server-ip", "");
+        mainCommand = config.getString("commands.main", "ts");
+        claimSub = config.getString("commands.claim-sub", "odbierz");
+        claimCooldownMillis = Math.max(0, config.getInt("claim-cooldown", 5)) * 1000L;
+        claimAllMaxVotes = Math.max(1, config.getInt("claim-all.max-votes", 10));
+        claimAllParallel = Math.max(1, config.getInt("claim-all.parallel", 4));
+
+        noRewardCacheTtlMillis = config.getBoolean("no-reward-cache.enabled", true)
+                ? Math.max(0, config.getInt("no-reward-cache.ttl", 10)) * 1000L
+                : 0L;
+        noRewardCacheMaxSize = config.getInt("no-reward-cache.max-size", 1000);
+
+        virtualThreads = config.getBoolean("claim-executor.virtual-threads", true);
+        claimThreads = config.getInt("claim-executor.threads", 4);
+        maxConcurrentClaims = config.getInt("claim-executor.max-concurrent", 32);
+        claimQueueSize = config.getInt("claim-executor.queue-size", 256);
+
+        circuitBreakerEnabled = config.getBoolean("circuit-breaker.enabled", true);
+        breakerWindowSize = config.getInt("circuit-breaker.window-size", 20);
+        breakerMinimumCalls = config.getInt("circuit-breaker.minimum-calls", 10);
+        breakerFailureRate = config.getInt("circuit-breaker.failure-rate", 50);
+        breakerSlowCallRate = config.getInt("circuit-breaker.slow-call-rate", 80);
+        breakerSlowCallMillis = config.getLong("circuit-breaker.slow-call-ms", 2000);
+        breakerOpenMillis = config.getLong("circuit-breaker.open-seconds", 30) * 1000L;
+        breakerHalfOpenCalls = config.getInt("circuit-breaker.half-open-calls", 3);
+        timeoutMinMillis = config.getLong("api-timeout.min-ms", 1000);
+        timeoutMaxMillis = config.getLong("api-timeout.max-ms", 5000);
+
+        votePollerEnabled = config.getBoolean("vote-poller.enabled", false);
+        votePollerBatch = config.getBoolean("vote-poller.batch", true);
+        votePollerIntervalSeconds = Math.max(10, config.getInt("vote-poller.interval", 60));
+        votePollerBatchSize = Math.max(1, config.getInt("vote-poller.batch-size", 100));
+
+        deliveryTickBudgetMillis = config.getDouble("delivery.tick-budget-ms", 2.0);
+        pendingJoinDelaySeconds = config.getInt("pending-rewards.join-delay", 2);
+        broadcastWindowSeconds = config.getInt("broadcast-aggregation.window", 10);
+        broadcastMaxNames = config.getInt("broadcast-aggregation.max-names", 3);
+
+        joinPrefetchEnabled = config.getBoolean("join-prefetch.enabled", false);
+        joinPrefetchDelayMillis = Math.max(0, config.getInt("join-prefetch.delay", 3)) * 1000L;
+        joinPrefetchJitterMillis = Math.max(0, config.getInt("join-prefetch.jitter", 5)) * 1000L;
+        joinPrefetchMaxPerSecond = Math.max(1, config.getInt("join-prefetch.max-per-second", 5));
+        joinPrefetchNotify = config.getBoolean("join-prefetch.notify", true);
+
+        messages = MessageCatalog.load(config);
+        rewardPlan = RewardPlan.compile(config, logger);
+    }
+
+    public static PluginSettings load(Configuration config, Logger logger) {
+        return new PluginSettings(config, logger);
+    }
+
+    public CircuitBreaker newCircuitBreaker() {
+        if (!circuitBreakerEnabled)
+            return CircuitBreaker.disabled();
+        return new CircuitBreaker(breakerWindowSize, breakerMinimumCalls, breakerFailureRate, breakerSlowCallRate,
+                breakerSlowCallMillis, breakerOpenMillis, breakerHalfOpenCalls);
+    }
+
+    public AdaptiveTimeout newTimeout() {
+        return new AdaptiveTimeout(timeoutMinMillis, timeoutMaxMillis);
+    }
+
+    /**
+     * @return true jeśli bezpiecznik z tych ustawień byłby taki sam jak z {@code other}
+     */
+    public boolean sameCircuitBreaker(PluginSettings other) {
+        return circuitBreakerEnabled == other.circuitBreakerEnabled
+                && breakerWindowSize == other.breakerWindowSize
+                && breakerMinimumCalls == other.breakerMinimumCalls
+                && breakerFailureRate == other.breakerFailureRate
+                && breakerSlowCallRate == other.breakerSlowCallRate
+                && breakerSlowCallMillis == other.breakerSlowCallMillis
+                && breakerOpenMillis == other.breakerOpenMillis
+                && breakerHalfOpenCalls == other.breakerHalfOpenCalls;
+    }
+
+    /**
+     * @return true jeśli limit czasu z tych ustawień byłby taki sam jak z {@code other}
+     */
+    public boolean sameTimeout(PluginSettings other) {
+        return timeoutMinMillis == other.timeoutMinMillis && timeoutMaxMillis == other.timeoutMaxMillis;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public String getServerIp() {
+        return serverIp;
+    }
+
+    public String getMainCommand() {
+        return mainCommand;
+    }
+
+    public String getClaimSub() {
+        return claimSub;
+    }
+
+    public long getClaimCooldownMillis() {
+        return claimCooldownMillis;
+    }
+
+    public int getClaimAllMaxVotes() {
+        return claimAllMaxVotes;
+    }
+
+    public int getClaimAllParallel() {
+        return claimAllParallel;
+    }
+
+    public long getNoRewardCacheTtlMillis() {
+        return noRewardCacheTtlMillis;
+    }
+
+    public int getNoRewardCacheMaxSize() {
+        return noRewardCacheMaxSize;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getClaimThreads() {
+        return claimThreads;
+    }
+
+    public int getMaxConcurrentClaims() {
+        return maxConcurrentClaims;
+    }
+
+    public int getClaimQueueSize() {
+        return claimQueueSize;
+    }
+
+    public boolean isVotePollerEnabled() {
+        return votePollerEnabled;
+    }
+
+    public boolean isVotePollerBatch() {
+        return votePollerBatch;
+    }
+
+    public int getVotePollerIntervalSeconds() {
+        return votePollerIntervalSeconds;
+    }
+
+    public int getVotePollerBatchSize() {
+        return votePollerBatchSize;
+    }
+
+    public double getDeliveryTickBudgetMillis() {
+        return deliveryTickBudgetMillis;
+    }
+
+    public int getPendingJoinDelaySeconds() {
+        return pendingJoinDelaySeconds;
+    }
+
+    public int getBroadcastWindowSeconds() {
+        return broadcastWindowSeconds;
+    }
+
+    public int getBroadcastMaxNames() {
+        return broadcastMaxNames;
+    }
+
+    public boolean isJoinPrefetchEnabled() {
+        return joinPrefetchEnabled;
+    }
+
+    public long getJoinPrefetchDelayMillis() {
+        return joinPrefetchDelayMillis;
+    }
+
+    public long getJoinPrefetchJitterMillis() {
+        return joinPrefetchJitterMillis;
+    }
+
+    public int getJoinPrefetchMaxPerSecond() {
+        return joinPrefetchMaxPerSecond;
+    }
+
+    public boolean isJoinPrefetchNotify() {
+        return joinPrefetchNotify;
+    }
+
+    public MessageCatalog getMessages() {
+        return messages;
+    }
+
+    public RewardPlan getRewardPlan() {
+        return rewardPlan;
+    }
+}
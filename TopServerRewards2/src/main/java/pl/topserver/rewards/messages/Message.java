@@ -0,0 +1,114 @@
+package pl.topserver.rewards.messages;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Skompilowana wiadomość z config.yml.
+ * Kolory są zamienione raz przy kompilacji, a tekst jest podzielony na stałe
+ * fragmenty i placeholdery ({player}, {seconds}, ...), więc wysłanie to jedno
+ * przejście po fragmentach bez szukania i podmieniania w całym napisie.
+ */
+public final class Message {
+
+    /** Wiadomość wyłączona w configu ("" lub false) — nic nie wysyła. */
+    public static final Message DISABLED = new Message(null, new String[0]);
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    // literals.length == placeholders.length + 1
+    private final String[] literals;
+    private final String[] placeholders;
+
+    private Message(String[] literals, String[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Kompiluje surowy tekst z configu. Zwraca {@link #DISABLED} dla "" i false.
+     */
+    public static Message compile(String raw) {
+        if (raw == null || raw.isEmpty() || raw.equalsIgnoreCase("false"))
+            return DISABLED;
+
+        String colored = ChatColor.translateAlternateColorCodes('&', raw);
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+
+        int literalStart = 0;
+        int i = 0;
+        while (i < colored.length()) {
+            int end = colored.charAt(i) == '{' ? placeholderEnd(colored, i) : -1;
+            if (end == -1) {
+                i++;
+                continue;
+            }
+            literals.add(colored.substring(literalStart, i));
+            placeholders.add(colored.substring(i, end + 1));
+            i = end + 1;
+            literalStart = i;
+        }
+        literals.add(colored.substring(literalStart));
+
+        return new Message(literals.toArray(new String[0]), placeholders.toArray(new String[0]));
+    }
+
+    /**
+     * Zwraca indeks '}' zamykającego placeholder zaczynający się w start,
+     * albo -1 jeśli to nie jest placeholder.
+     */
+    private static int placeholderEnd(String text, int start) {
+        for (int i = start + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '}')
+                return i > start + 1 ? i : -1;
+            if (!(Character.isLetterOrDigit(c) || c == '_' || c == '-'))
+                return -1;
+        }
+        return -1;
+    }
+
+    public boolean isEnabled() {
+        return literals != null;
+    }
+
+    /**
+     * Składa wiadomość. Zamiany podaje się parami: "{player}", "Steve", ...
+     * Placeholdery bez podanej wartości zostają w tekście bez zmian.
+     *
+     * @return gotowy tekst albo null, jeśli wiadomość jest wyłączona
+     */
+    public String render(String... replacements) {
+        if (literals == null)
+            return null;
+        if (placeholders.length == 0)
+            return literals[0];
+
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        sb.append(literals[0]);
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(valueOf(placeholders[i], replacements));
+            sb.append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    public void send(CommandSender target, String... replacements) {
+        String text = render(replacements);
+        if (text != null)
+            target.sendMessage(text);
+    }
+
+    private static String valueOf(String placeholder, String[] replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (placeholder.equals(replacements[i]))
+                return replacements[i + 1];
+        }
+        return placeholder;
+    }
+}
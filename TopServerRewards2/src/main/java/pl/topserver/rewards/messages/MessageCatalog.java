@@ -0,0 +1,54 @@
+package pl.topserver.rewards.messages;
+
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Niezmienny katalog wszystkich wiadomości z sekcji "messages".
+ * Budowany raz przy starcie i przy każdym przeładowaniu konfiguracji.
+ */
+public final class MessageCatalog {
+
+    private static final String SECTION = "messages";
+
+    private final Map<String, Message> messages;
+
+    private MessageCatalog(Map<String, Message> messages) {
+        this.messages = messages;
+    }
+
+    public static MessageCatalog load(Configuration config) {
+        // Klucze z pliku użytkownika i z domyślnego configu w JAR
+        Set<String> keys = new LinkedHashSet<>();
+        collectKeys(config.getConfigurationSection(SECTION), keys);
+        if (config.getDefaults() != null)
+            collectKeys(config.getDefaults().getConfigurationSection(SECTION), keys);
+
+        Map<String, Message> compiled = new HashMap<>();
+        for (String key : keys) {
+            String path = SECTION + "." + key;
+            if (config.isConfigurationSection(path))
+                continue;
+            compiled.put(path, Message.compile(config.getString(path, "")));
+        }
+        return new MessageCatalog(Map.copyOf(compiled));
+    }
+
+    private static void collectKeys(ConfigurationSection section, Set<String> keys) {
+        if (section != null)
+            keys.addAll(section.getKeys(true));
+    }
+
+    /**
+     * Zwraca wiadomość dla pełnej ścieżki (np. "messages.cooldown").
+     * Brakująca wiadomość jest traktowana jak wyłączona.
+     */
+    public Message get(String path) {
+        return messages.getOrDefault(path, Message.DISABLED);
+    }
+}
@@ -0,0 +1,114 @@
+package pl.topserver.rewards.rewards;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import pl.topserver.rewards.messages.MessageCatalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Łączy ogłoszenia o odebranych nagrodach w czasie fali odbierań.
+ * <p>
+ * Pierwsze odebranie jest ogłaszane od razu i otwiera okno. Kolejne odebrania
+ * w tym oknie są zbierane i po jego końcu wysyłane jako jedna wiadomość
+ * (messages.broadcast-many), np. "A, B, C i 17 innych odebrało nagrody".
+ * Dopóki fala trwa, okna idą jedno po drugim; pojedyncze odebranie poza falą
+ * wygląda tak jak wcześniej.
+ * <p>
+ * Wywołujemy tylko z głównego wątku.
+ */
+public final class BroadcastAggregator {
+
+    private final Plugin plugin;
+    private final List<String> names = new ArrayList<>();
+
+    private long windowTicks;
+    private int nameCap;
+    private int count;
+    private MessageCatalog messages;
+    private BukkitTask windowTask;
+
+    public BroadcastAggregator(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * @param windowSeconds długość okna; 0 wyłącza łączenie
+     * @param nameCap       ile nicków wymienić z nazwy, reszta to "i N innych"
+     */
+    public void configure(int windowSeconds, int nameCap) {
+        this.windowTicks = Math.max(0, windowSeconds) * 20L;
+        this.nameCap = Math.max(1, nameCap);
+    }
+
+    public void announce(String playerName, MessageCatalog messages) {
+        this.messages = messages;
+
+        if (windowTicks == 0) {
+            broadcastSingle(playerName);
+            return;
+        }
+
+        if (windowTask == null) {
+            broadcastSingle(playerName);
+            windowTask = Bukkit.getScheduler().runTaskLater(plugin, this::closeWindow, windowTicks);
+            return;
+        }
+
+        count++;
+        if (names.size() < nameCap)
+            names.add(playerName);
+    }
+
+    private void closeWindow() {
+        windowTask = null;
+        if (count == 0)
+            return;
+
+        broadcastCollected();
+        // Fala trwa — kolejne odebrania znowu zbieramy przez całe okno
+        windowTask = Bukkit.getScheduler().runTaskLater(plugin, this::closeWindow, windowTicks);
+    }
+
+    private void broadcastCollected() {
+        if (count == 1) {
+            broadcastSingle(names.get(0));
+        } else {
+            int others = count - names.size();
+            String players = String.join(", ", names);
+            if (others > 0) {
+                String suffix = messages.get("messages.broadcast-others").render("{others}", String.valueOf(others));
+                if (suffix != null)
+                    players += suffix;
+            }
+            String message = messages.get("messages.broadcast-many").render("{players}", players, "{count}",
+                    String.valueOf(count), "{others}", String.valueOf(others));
+            if (message != null)
+                Bukkit.broadcastMessage(message);
+        }
+
+        names.clear();
+        count = 0;
+    }
+
+    private void broadcastSingle(String playerName) {
+        String message = messages.get("messages.broadcast").render("{player}", playerName);
+        if (message != null)
+            Bukkit.broadcastMessage(message);
+    }
+
+    /**
+     * Wysyła zebrane ogłoszenia od razu, np. przy wyłączaniu pluginu.
+     */
+    public void flush() {
+        if (windowTask == null)
+            return;
+        windowTask.cancel();
+        windowTask = null;
+        if (count > 0)
+            broadcastCollected();
+    }
+}
@@ -0,0 +1,166 @@
+package pl.topserver.rewards.rewards;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Kolejka wydawania nagród na głównym wątku.
+ * <p>
+ * Zamiast osobnego runTask dla każdej nagrody, wszystkie trafiają do jednej
+ * kolejki FIFO, którą co tick opróżniamy, dopóki nie skończy się budżet czasu
+ * (mierzony System.nanoTime). Reszta czeka na następny tick, więc fala
+ * odbierań po akcji głosowania rozkłada się na kilka ticków zamiast jednego
+ * długiego. Kolejność jest globalna, czyli także zachowana dla każdego gracza.
+ * <p>
+ * submit() można wołać z dowolnego wątku, reszta działa na głównym.
+ */
+public final class DeliveryScheduler {
+
+    private static final double AVERAGE_WEIGHT = 0.05;
+
+    private final Plugin plugin;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueLength = new AtomicInteger();
+
+    private volatile long budgetNanos;
+    private BukkitTask task;
+    private volatile boolean stopped;
+
+    // Statystyki, zapisywane tylko na głównym wątku
+    private volatile long lastTickNanos;
+    private volatile int lastTickItems;
+    private volatile long maxTickNanos;
+    private volatile double averageTickNanos;
+    private volatile long delivered;
+
+    public DeliveryScheduler(Plugin plugin, double budgetMillis) {
+        this.plugin = plugin;
+        setBudgetMillis(budgetMillis);
+    }
+
+    public void setBudgetMillis(double budgetMillis) {
+        this.budgetNanos = (long) (Math.max(0.1, budgetMillis) * 1_000_000L);
+    }
+
+    public void start() {
+        stopped = false;
+        if (task == null)
+            task = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+    }
+
+    /**
+     * Zatrzymuje kolejkę i od razu, bez budżetu ticku, wydaje wszystko, co w
+     * niej czeka. To nagrody już potwierdzone w API — przy wyłączonym
+     * claim-journal nie byłoby ich skąd wydać po restarcie. Wołać z głównego
+     * wątku (onDisable), przed zatrzymaniem dziennika.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        stopped = true;
+
+        long start = System.nanoTime();
+        int items = 0;
+        Runnable delivery;
+        while ((delivery = queue.poll()) != null) {
+            queueLength.decrementAndGet();
+            run(delivery);
+            items++;
+        }
+        delivered += items;
+        if (items > 0)
+            plugin.getLogger().info("Wydano " + items + " nagrod z kolejki przy wylaczaniu ("
+                    + (System.nanoTime() - start) / 1_000_000L + " ms).");
+    }
+
+    public void submit(Runnable delivery) {
+        queue.add(delivery);
+        queueLength.incrementAndGet();
+        // Odbieranie skończyło się już po stop() — nikt tej kolejki nie opróżni.
+        // Jeśli stop() zdążył ją zabrać, remove nic nie zrobi.
+        if (stopped && queue.remove(delivery)) {
+            queueLength.decrementAndGet();
+            plugin.getLogger().warning("Nagroda potwierdzona po wylaczeniu kolejki wydawania - zostanie wydana"
+                    + " po restarcie, jesli claim-journal jest wlaczony.");
+        }
+    }
+
+    private void drain() {
+        if (queue.isEmpty()) {
+            lastTickNanos = 0;
+            lastTickItems = 0;
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + budgetNanos;
+        int items = 0;
+        long now;
+        // Przynajmniej jedna nagroda na tick, nawet jeśli pojedyncza przekracza budżet
+        do {
+            Runnable delivery = queue.poll();
+            if (delivery == null)
+                break;
+            queueLength.decrementAndGet();
+            run(delivery);
+            items++;
+            now = System.nanoTime();
+        } while (now < deadline);
+
+        long cost = System.nanoTime() - start;
+        lastTickNanos = cost;
+        lastTickItems = items;
+        delivered += items;
+        if (cost > maxTickNanos)
+            maxTickNanos = cost;
+        averageTickNanos = averageTickNanos == 0 ? cost
+                : averageTickNanos + (cost - averageTickNanos) * AVERAGE_WEIGHT;
+    }
+
+    private void run(Runnable delivery) {
+        try {
+            delivery.run();
+        } catch (RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Blad podczas wydawania nagrody", e);
+        }
+    }
+
+    public int getQueueLength() {
+        return queueLength.get();
+    }
+
+    public double getBudgetMillis() {
+        return budgetNanos / 1_000_000.0;
+    }
+
+    public double getLastTickMillis() {
+        return lastTickNanos / 1_000_000.0;
+    }
+
+    public int getLastTickItems() {
+        return lastTickItems;
+    }
+
+    /**
+     * Średni koszt ticku, w którym coś było do wydania.
+     */
+    public double getAverageTickMillis() {
+        return averageTickNanos / 1_000_000.0;
+    }
+
+    public double getMaxTickMillis() {
+        return maxTickNanos / 1_000_000.0;
+    }
+
+    public long getDeliveredCount() {
+        return delivered;
+    }
+}
@@ -0,0 +1,176 @@
+package pl.topserver.rewards.rewards;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import pl.topserver.rewards.messages.MessageCatalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Skompilowana sekcja "rewards" z config.yml.
+ * Itemy, komendy i kwota są parsowane i sprawdzane raz przy starcie/przeładowaniu,
+ * a błędy są logowane tylko wtedy — wydanie nagrody nie parsuje już niczego.
+ */
+public final class RewardPlan {
+
+    private static final String PLAYER_PLACEHOLDER = "{player}";
+
+    private final boolean enabled;
+    private final boolean broadcast;
+    private final ItemStack[] items;
+    private final String[][] commands;
+    private final String moneyAmount;
+    private final double money;
+
+    private RewardPlan(boolean enabled, boolean broadcast, ItemStack[] items, String[][] commands,
+            String moneyAmount, double money) {
+        this.enabled = enabled;
+        this.broadcast = broadcast;
+        this.items = items;
+        this.commands = commands;
+        this.moneyAmount = moneyAmount;
+        this.money = money;
+    }
+
+    public static RewardPlan compile(ConfigurationSection config, Logger logger) {
+        boolean enabled = config.getBoolean("rewards.enabled", true);
+        boolean broadcast = config.getBoolean("rewards.broadcast", true);
+
+        List<ItemStack> items = new ArrayList<>();
+        if (config.getBoolean("rewards.items.enabled", true)) {
+            for (String itemString : config.getStringList("rewards.items.list")) {
+                ItemStack item = parseItem(itemString);
+                if (item != null)
+                    items.add(item);
+                else
+                    logger.warning("Nieprawidlowy item w rewards.items.list: " + itemString);
+            }
+        }
+
+        List<String[]> commands = new ArrayList<>();
+        if (config.getBoolean("rewards.commands.enabled", false)) {
+            for (String cmd : config.getStringList("rewards.commands.list")) {
+                if (cmd == null || cmd.trim().isEmpty()) {
+                    logger.warning("Pusta komenda w rewards.commands.list zostala pominieta.");
+                    continue;
+                }
+                commands.add(splitTemplate(cmd));
+            }
+        }
+
+        String moneyAmount = null;
+        double money = 0;
+        if (config.getBoolean("rewards.money.enabled", false)) {
+            money = config.getDouble("rewards.money.amount", 100.0);
+            moneyAmount = String.valueOf(money);
+        }
+
+        return new RewardPlan(enabled, broadcast, items.toArray(new ItemStack[0]),
+                commands.toArray(new String[0][]), moneyAmount, money);
+    }
+
+    /**
+     * Parsuje "MATERIAL" lub "MATERIAL:ILOSC". Zwraca null przy błędzie.
+     */
+    private static ItemStack parseItem(String itemString) {
+        if (itemString == null)
+            return null;
+
+        String[] parts = itemString.trim().split(":");
+        if (parts.length > 2)
+            return null;
+
+        Material material = Material.matchMaterial(parts[0]);
+        if (material == null || material.isAir() || !material.isItem())
+            return null;
+
+        int amount = 1;
+        if (parts.length > 1) {
+            try {
+                amount = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (amount <= 0)
+                return null;
+        }
+        return new ItemStack(material, amount);
+    }
+
+    /**
+     * Dzieli komendę na stałe fragmenty wokół {player}.
+     */
+    private static String[] splitTemplate(String template) {
+        List<String> parts = new ArrayList<>();
+        int from = 0;
+        int at;
+        while ((at = template.indexOf(PLAYER_PLACEHOLDER, from)) != -1) {
+            parts.add(template.substring(from, at));
+            from = at + PLAYER_PLACEHOLDER.length();
+        }
+        parts.add(template.substring(from));
+        return parts.toArray(new String[0]);
+    }
+
+    /**
+     * Wydaje nagrody graczowi. Wywoływać tylko z głównego wątku.
+     */
+    public void deliver(Player player, MessageCatalog messages) {
+        deliver(player, messages, 1);
+    }
+
+    /**
+     * Wydaje nagrody za kilka głosów naraz: itemy jednym addItem, komendy
+     * {@code times} razy i jedna wiadomość z łączną kwotą. Tylko z głównego wątku.
+     */
+    public void deliver(Player player, MessageCatalog messages, int times) {
+        if (!enabled) {
+            messages.get("messages.rewards-disabled").send(player);
+            return;
+        }
+
+        if (items.length > 0) {
+            ItemStack[] stacks = new ItemStack[items.length * times];
+            for (int i = 0; i < stacks.length; i++)
+                stacks[i] = items[i % items.length].clone();
+            player.getInventory().addItem(stacks);
+        }
+
+        if (commands.length > 0) {
+            String playerName = player.getName();
+            for (int i = 0; i < times; i++) {
+                for (String[] parts : commands)
+                    Bukkit.dispatchCommand(Bukkit.getConsoleSender(), render(parts, playerName));
+            }
+        }
+
+        if (moneyAmount != null) {
+            messages.get("messages.money-received").send(player, "{amount}",
+                    times == 1 ? moneyAmount : String.valueOf(money * times));
+        }
+    }
+
+    private static String render(String[] parts, String playerName) {
+        if (parts.length == 1)
+            return parts[0];
+
+        StringBuilder sb = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++)
+            sb.append(playerName).append(parts[i]);
+        return sb.toString();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isBroadcast() {
+        return broadcast;
+    }
+}
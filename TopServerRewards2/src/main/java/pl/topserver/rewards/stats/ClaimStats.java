@@ -0,0 +1,86 @@
+package pl.topserver.rewards.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statystyki odbierania nagród od startu serwera: czasy poszczególnych etapów
+ * i liczniki wyników. Wszystko bez blokad, zapis z dowolnego wątku.
+ */
+public final class ClaimStats {
+
+    /** Od wysłania zapytania do nagłówków odpowiedzi (DNS, połączenie i czas serwera API). */
+    private final LatencyHistogram apiHeaders = new LatencyHistogram();
+    private final LatencyHistogram check = new LatencyHistogram();
+    private final LatencyHistogram claim = new LatencyHistogram();
+    /** Wydanie nagrody na głównym wątku. */
+    private final LatencyHistogram delivery = new LatencyHistogram();
+    /** Od komendy gracza do wydania nagrody. */
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder noReward = new LongAdder();
+    /** Wszystkie wysłane zapytania do API, także z pollera, prefetchu i ponowień. */
+    private final LongAdder apiRequests = new LongAdder();
+    private final LongAdder apiErrors = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public LatencyHistogram getApiHeaders() {
+        return apiHeaders;
+    }
+
+    public LatencyHistogram getCheck() {
+        return check;
+    }
+
+    public LatencyHistogram getClaim() {
+        return claim;
+    }
+
+    public LatencyHistogram getDelivery() {
+        return delivery;
+    }
+
+    public LatencyHistogram getEndToEnd() {
+        return endToEnd;
+    }
+
+    public void countSuccess() {
+        successes.increment();
+    }
+
+    public void countNoReward() {
+        noReward.increment();
+    }
+
+    public void countApiRequest() {
+        apiRequests.increment();
+    }
+
+    public void countApiError() {
+        apiErrors.increment();
+    }
+
+    public void countRejection() {
+        rejections.increment();
+    }
+
+    public long getSuccesses() {
+        return successes.sum();
+    }
+
+    public long getNoReward() {
+        return noReward.sum();
+    }
+
+    public long getApiRequests() {
+        return apiRequests.sum();
+    }
+
+    public long getApiErrors() {
+        return apiErrors.sum();
+    }
+
+    public long getRejections() {
+        return rejections.sum();
+    }
+}
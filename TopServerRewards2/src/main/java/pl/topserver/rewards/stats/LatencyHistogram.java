@@ -0,0 +1,88 @@
+package pl.topserver.rewards.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Histogram czasów bez blokad, z kubełkami jak w HdrHistogram: każda potęga
+ * dwójki jest dzielona na 8 równych części, więc błąd percentyla to najwyżej
+ * ~12,5%, a cały histogram to jedna tablica liczników.
+ * <p>
+ * Czasy są liczone w mikrosekundach. record() to jedno inkrementowanie licznika,
+ * bezpieczne z dowolnego wątku.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Do 2^40 µs (~12 dni) — dłuższe czasy trafiają do ostatniego kubełka
+    private static final int MAX_EXPONENT = 39;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public void record(long durationNanos) {
+        long micros = Math.min(MAX_VALUE, Math.max(0L, durationNanos / 1000L));
+        counts.incrementAndGet(indexOf(micros));
+        max.accumulate(micros);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BITS;
+        int sub = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Największa wartość, jaka trafia do danego kubełka.
+     */
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (1L << (shift + SUB_BITS)) | ((long) sub << shift);
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Percentyl w milisekundach (górna granica kubełka), albo 0 bez pomiarów.
+     *
+     * @param percentile np. 99.0
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(upperBoundOf(i), max.get()) / 1000.0;
+        }
+        return max.get() / 1000.0;
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1000.0;
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += counts.get(i);
+        return total;
+    }
+}
@@ -6,12 +6,20 @@ import pl.topserver.rewards.TopServerRewards;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 public class ConfigUpdater {
 
+    private static final String STATE_FILE = "config-state.properties";
+
     private final TopServerRewards plugin;
     private final Logger logger;
 
@@ -27,12 +35,29 @@ public class ConfigUpdater {
             return;
         }
 
-        // Wczytaj domyślny config z JAR jako YAML i jako tekst (raz!)
-        List<String> defaultLines = readResourceLines();
-        if (defaultLines == null || defaultLines.isEmpty()) {
+        // Wczytaj domyślny config z JAR i plik użytkownika jako bajty (raz!)
+        byte[] defaultBytes = readResourceBytes();
+        if (defaultBytes == null || defaultBytes.length == 0) {
             logger.warning("[ConfigUpdater] Nie udalo sie wczytac domyslnego config.yml z JAR!");
             return;
         }
+        byte[] userBytes;
+        try {
+            userBytes = Files.readAllBytes(configFile.toPath());
+        } catch (IOException e) {
+            logger.severe("[ConfigUpdater] Blad czytania config.yml: " + e.getMessage());
+            return;
+        }
+
+        // Nic się nie zmieniło od ostatniego startu — bez parsowania YAML
+        File stateFile = new File(plugin.getDataFolder(), STATE_FILE);
+        String pluginVersion = plugin.getDescription().getVersion();
+        String defaultHash = sha256(defaultBytes);
+        if (isUnchanged(stateFile, pluginVersion, defaultHash, sha256(userBytes))) {
+            return;
+        }
+
+        List<String> defaultLines = toLines(defaultBytes);
 
         FileConfiguration defaultConfig = loadYamlFromLines(defaultLines);
         if (defaultConfig == null) {
@@ -43,8 +68,9 @@ public class ConfigUpdater {
         // WAŻNE: NIE używamy plugin.getConfig() bo Bukkit merguje domyślne wartości z
         // JAR!
         // Ładujemy config BEZPOŚREDNIO z pliku, żeby widzieć co NAPRAWDĘ jest w pliku
-        // użytkownika
-        FileConfiguration userConfig = YamlConfiguration.loadConfiguration(configFile);
+        // użytkownika. Plik czytamy raz — te same linie posłużą do aktualizacji.
+        List<String> userLines = toLines(userBytes);
+        FileConfiguration userConfig = loadYamlFromLines(userLines);
         int userVersion = userConfig.getInt("config-version", 0);
         int defaultVersion = defaultConfig.getInt("config-version", 0);
 
@@ -56,110 +82,24 @@ public class ConfigUpdater {
 
         if (userVersion >= defaultVersion && missingKeys.isEmpty()) {
             logger.info("[ConfigUpdater] Config jest aktualny, brak zmian.");
+            saveState(stateFile, pluginVersion, defaultHash, sha256(userBytes));
             return;
         }
 
         logger.info("[ConfigUpdater] Aktualizuje config z v" + userVersion + " do v" + defaultVersion + "...");
 
         try {
-            if (missingKeys.isEmpty()) {
-                // Tylko zaktualizuj config-version w pliku
-                updateConfigVersionInFile(configFile, defaultVersion);
-                plugin.reloadConfig();
-                return;
-            }
-
-            // Wczytaj plik uzytkownika jako tekst
-            List<String> userLines = new ArrayList<>(Files.readAllLines(configFile.toPath(), StandardCharsets.UTF_8));
-            logger.info("[ConfigUpdater] Wczytano " + userLines.size() + " linii z config.yml uzytkownika");
-            logger.info("[ConfigUpdater] Wczytano " + defaultLines.size() + " linii z domyslnego configu");
-
-            // Grupuj brakujące klucze po sekcji top-level
-            Map<String, List<String>> keysBySection = new LinkedHashMap<>();
-            for (String key : missingKeys) {
-                String section = key.contains(".") ? key.substring(0, key.indexOf('.')) : key;
-                keysBySection.computeIfAbsent(section, k -> new ArrayList<>()).add(key);
-            }
-
-            for (Map.Entry<String, List<String>> entry : keysBySection.entrySet()) {
-                String section = entry.getKey();
-                List<String> keys = entry.getValue();
-
-                boolean sectionInFile = lineExists(userLines, section + ":");
-                logger.info("[ConfigUpdater] Sekcja '" + section + "' istnieje w pliku: " + sectionInFile);
-
-                if (!sectionInFile) {
-                    // Cala sekcja brakuje — wyciągnij z domyślnego i dopisz na końcu
-                    List<String> sectionText = extractSection(defaultLines, section);
-                    logger.info("[ConfigUpdater] Wyciagnieto " + sectionText.size() + " linii dla sekcji '" + section
-                            + "'");
-
-                    if (!sectionText.isEmpty()) {
-                        userLines.add("");
-                        userLines.addAll(sectionText);
-                    } else {
-                        // Fallback: generuj sekcję ręcznie
-                        logger.info("[ConfigUpdater] Fallback: generuje sekcje '" + section + "' recznie");
-                        userLines.add("");
-                        userLines.add(section + ":");
-                        for (String key : keys) {
-                            String subKey = key.substring(section.length() + 1);
-                            Object val = defaultConfig.get(key);
-                            userLines.add("  " + subKey + ": " + toYaml(val));
-                        }
-                    }
-                } else {
-                    // Sekcja istnieje — wyciągnij brakujące linie z domyślnego configu
-                    int insertAt = findSectionEnd(userLines, section);
-                    logger.info("[ConfigUpdater] Wstawiam klucze do sekcji '" + section + "' na pozycji " + insertAt);
-
-                    List<String> newLines = new ArrayList<>();
-                    for (String key : keys) {
-                        // Spróbuj wyciągnąć linie z domyślnego configu (zachowuje komentarze)
-                        List<String> keyLines = extractKeyLines(defaultLines, key);
-                        if (!keyLines.isEmpty()) {
-                            newLines.addAll(keyLines);
-                        } else {
-                            // Fallback: generuj ręcznie
-                            String subKey = key.substring(section.length() + 1);
-                            Object val = defaultConfig.get(key);
-                            // Oblicz wcięcie na podstawie głębokości klucza
-                            int depth = key.split("\\.").length - 1;
-                            String indent = "  ".repeat(depth);
-                            newLines.add(indent + subKey + ": " + toYaml(val));
-                        }
-                    }
-                    userLines.addAll(insertAt, newLines);
-                }
-            }
-
-            // Usuń cały blok config-version (komentarze dekoracyjne + sam klucz)
-            removeConfigVersionBlock(userLines);
-
-            // Usuń puste linie na końcu
-            while (!userLines.isEmpty() && userLines.get(userLines.size() - 1).trim().isEmpty()) {
-                userLines.remove(userLines.size() - 1);
-            }
-
-            // Dodaj cały blok config-version z domyślnego configu na samym końcu
-            List<String> versionBlock = extractSection(defaultLines, "config-version");
-            userLines.add("");
-            if (!versionBlock.isEmpty()) {
-                // Podmień wartość wersji w wyciągniętym bloku
-                for (int i = 0; i < versionBlock.size(); i++) {
-                    if (versionBlock.get(i).trim().startsWith("config-version:")) {
-                        versionBlock.set(i, versionBlock.get(i).replaceAll("config-version:.*",
-                                "config-version: " + defaultVersion));
-                    }
-                }
-                userLines.addAll(versionBlock);
-            } else {
-                userLines.add("config-version: " + defaultVersion);
-            }
-
-            // Zapisz
-            Files.write(configFile.toPath(), userLines, StandardCharsets.UTF_8);
+            // Jedno przejście po każdym pliku, potem wszystkie wstawienia planujemy na indeksach
+            YamlLineIndex defaults = YamlLineIndex.build(defaultLines);
+            YamlLineIndex user = YamlLineIndex.build(userLines);
+
+            List<String> updated = applyMissingKeys(userLines, user, defaults, defaultConfig, missingKeys,
+                    defaultVersion);
+            // Nie zapisujemy pliku, którego sam Bukkit by nie wczytał — wtedy zadziała fallback niżej
+            new YamlConfiguration().loadFromString(String.join("\n", updated));
+            writeAtomically(configFile, updated);
             plugin.reloadConfig();
+            saveState(stateFile, pluginVersion, defaultHash, sha256(Files.readAllBytes(configFile.toPath())));
             logger.info("[ConfigUpdater] Config zaktualizowany pomyslnie!");
 
         } catch (Exception e) {
@@ -176,6 +116,7 @@ public class ConfigUpdater {
                 config.set("config-version", defaultVersion);
                 config.save(configFile);
                 plugin.reloadConfig();
+                saveState(stateFile, pluginVersion, defaultHash, sha256(Files.readAllBytes(configFile.toPath())));
                 logger.info("[ConfigUpdater] Fallback zakonczony (komentarze mogly zostac usuniete).");
             } catch (Exception ex) {
                 logger.severe("[ConfigUpdater] Fallback tez sie nie udal: " + ex.getMessage());
@@ -183,288 +124,241 @@ public class ConfigUpdater {
         }
     }
 
-    private void updateConfigVersionInFile(File configFile, int version) {
-        try {
-            List<String> lines = new ArrayList<>(
-                    Files.readAllLines(configFile.toPath(), StandardCharsets.UTF_8));
-
-            // Usuń cały blok config-version
-            removeConfigVersionBlock(lines);
+    /**
+     * Składa nowy plik w jednym przejściu po liniach użytkownika.
+     * Każdy brakujący fragment (wraz z komentarzami z domyślnego configu) trafia
+     * na koniec najgłębszej sekcji, która już istnieje u użytkownika; brakujące
+     * sekcje top-level są dopisywane na końcu. Blok config-version jest
+     * przenoszony na sam koniec z nową wersją.
+     * <p>
+     * Bloki dostają wcięcia z pliku użytkownika. Kilka bloków w tym samym
+     * miejscu (koniec sekcji, która kończy też sekcję nadrzędną) wstawiamy od
+     * najgłębszego, żeby dzieci głębszej sekcji nie trafiły za płytszy klucz.
+     */
+    private List<String> applyMissingKeys(List<String> userLines, YamlLineIndex user, YamlLineIndex defaults,
+            FileConfiguration defaultConfig, List<String> missingKeys, int defaultVersion) {
+        Map<Integer, List<Insertion>> insertions = new HashMap<>();
+        int userStep = user.indentStep();
+        List<String> appended = new ArrayList<>();
+        Set<String> planned = new HashSet<>();
+
+        for (String key : missingKeys) {
+            // Pierwszy poziom ścieżki, którego brakuje u użytkownika
+            YamlLineIndex.Entry parent = null;
+            String missingPath = null;
+            int dot = -1;
+            do {
+                dot = key.indexOf('.', dot + 1);
+                String prefix = dot < 0 ? key : key.substring(0, dot);
+                YamlLineIndex.Entry entry = user.get(prefix);
+                if (entry == null) {
+                    missingPath = prefix;
+                    break;
+                }
+                parent = entry;
+            } while (dot >= 0);
 
-            // Usuń puste linie na końcu
-            while (!lines.isEmpty() && lines.get(lines.size() - 1).trim().isEmpty()) {
-                lines.remove(lines.size() - 1);
+            if (missingPath == null) {
+                // Klucz jest w pliku w formie, której indeks nie rozpoznaje (np. {a: b})
+                logger.warning("[ConfigUpdater] Nie mozna wstawic klucza '" + key + "' - pomijam.");
+                continue;
             }
+            if (!planned.add(missingPath))
+                continue;
 
-            // Dodaj cały blok z domyślnego configu na końcu
-            List<String> defaultLines = readResourceLines();
-            List<String> versionBlock = (defaultLines != null) ? extractSection(defaultLines, "config-version")
-                    : new ArrayList<>();
-            lines.add("");
-            if (!versionBlock.isEmpty()) {
-                for (int i = 0; i < versionBlock.size(); i++) {
-                    if (versionBlock.get(i).trim().startsWith("config-version:")) {
-                        versionBlock.set(i,
-                                versionBlock.get(i).replaceAll("config-version:.*", "config-version: " + version));
-                    }
-                }
-                lines.addAll(versionBlock);
+            List<String> block = defaults.block(missingPath);
+            int blockIndent = 0;
+            int blockStep = 2;
+            if (block.isEmpty()) {
+                // Fallback: generuj ręcznie
+                generateLines(defaultConfig, missingPath, 0, block);
             } else {
-                lines.add("config-version: " + version);
+                blockIndent = defaults.get(missingPath).indent;
+                blockStep = defaults.indentStep();
             }
-            Files.write(configFile.toPath(), lines, StandardCharsets.UTF_8);
-        } catch (IOException e) {
-            logger.severe("[ConfigUpdater] Blad zapisu config-version: " + e.getMessage());
-        }
-    }
 
-    /**
-     * Usuwa cały blok config-version z listy linii
-     * (sam klucz + wszystkie komentarze i puste linie nad nim)
-     */
-    private void removeConfigVersionBlock(List<String> lines) {
-        int versionLine = -1;
-        for (int i = lines.size() - 1; i >= 0; i--) {
-            if (lines.get(i).trim().startsWith("config-version:")) {
-                versionLine = i;
-                break;
+            if (parent == null) {
+                appended.add("");
+                appended.addAll(reindent(block, blockIndent, blockStep, 0, userStep));
+            } else {
+                block = reindent(block, blockIndent, blockStep, user.childIndent(parent), userStep);
+                insertions.computeIfAbsent(parent.end, k -> new ArrayList<>())
+                        .add(new Insertion(parent.indent, block));
             }
         }
-        if (versionLine == -1)
-            return;
 
-        // Znajdź początek bloku (komentarze i puste linie nad config-version)
-        int blockStart = versionLine;
-        while (blockStart > 0) {
-            String prev = lines.get(blockStart - 1).trim();
-            if (prev.startsWith("#") || prev.isEmpty()) {
-                blockStart--;
-            } else {
-                break;
+        // Stary blok config-version (klucz + komentarze i puste linie nad nim) jest pomijany
+        YamlLineIndex.Entry oldVersion = user.get("config-version");
+        int skipFrom = oldVersion != null ? oldVersion.blockStart : -1;
+        int skipTo = oldVersion != null ? oldVersion.end : -1;
+
+        List<String> result = new ArrayList<>(userLines.size() + appended.size() + 16);
+        for (int i = 0; i <= userLines.size(); i++) {
+            List<Insertion> inserted = insertions.get(i);
+            if (inserted != null) {
+                // Sortowanie stabilne — bloki z tej samej sekcji zostają w kolejności domyślnego configu
+                inserted.sort(Comparator.comparingInt(Insertion::depth).reversed());
+                for (Insertion insertion : inserted)
+                    result.addAll(insertion.lines());
             }
+            if (i < userLines.size() && (i < skipFrom || i >= skipTo))
+                result.add(userLines.get(i));
         }
+        result.addAll(appended);
 
-        // Usuń cały blok od końca
-        for (int i = versionLine; i >= blockStart; i--) {
-            lines.remove(i);
+        // Usuń puste linie na końcu
+        while (!result.isEmpty() && result.get(result.size() - 1).trim().isEmpty()) {
+            result.remove(result.size() - 1);
         }
-    }
 
-    private List<String> readResourceLines() {
-        List<String> lines = new ArrayList<>();
-        try (InputStream is = plugin.getResource("config.yml")) {
-            if (is == null) {
-                logger.warning("[ConfigUpdater] plugin.getResource('config.yml') zwrocilo null!");
-                return null;
-            }
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    lines.add(line);
+        // Dodaj cały blok config-version z domyślnego configu na samym końcu
+        List<String> versionBlock = defaults.block("config-version");
+        result.add("");
+        if (!versionBlock.isEmpty()) {
+            // Podmień wartość wersji w wyciągniętym bloku
+            for (int i = 0; i < versionBlock.size(); i++) {
+                if (versionBlock.get(i).trim().startsWith("config-version:")) {
+                    versionBlock.set(i, versionBlock.get(i).replaceAll("config-version:.*",
+                            "config-version: " + defaultVersion));
                 }
             }
-        } catch (Exception e) {
-            logger.severe("[ConfigUpdater] Blad czytania zasobu: " + e.getMessage());
-            return null;
+            result.addAll(versionBlock);
+        } else {
+            result.add("config-version: " + defaultVersion);
         }
-        return lines;
+        return result;
     }
 
-    private FileConfiguration loadYamlFromLines(List<String> lines) {
-        String joined = String.join("\n", lines);
-        return YamlConfiguration.loadConfiguration(new StringReader(joined));
+    private record Insertion(int depth, List<String> lines) {
     }
 
-    private List<String> findMissingKeys(FileConfiguration userConfig, FileConfiguration defaultConfig) {
-        List<String> missing = new ArrayList<>();
-        for (String key : defaultConfig.getKeys(true)) {
-            if (defaultConfig.isConfigurationSection(key))
-                continue;
-            if (key.equals("config-version"))
+    /**
+     * Przesuwa blok z kolumny {@code fromIndent} na {@code toIndent} i zamienia
+     * krok wcięcia {@code fromStep} na {@code toStep} na każdym poziomie.
+     */
+    private static List<String> reindent(List<String> block, int fromIndent, int fromStep, int toIndent,
+            int toStep) {
+        if (fromIndent == toIndent && fromStep == toStep)
+            return block;
+        List<String> out = new ArrayList<>(block.size());
+        for (String line : block) {
+            int indent = YamlLineIndex.indentOf(line);
+            if (indent == line.length()) {
+                out.add("");
                 continue;
-            if (!userConfig.contains(key)) {
-                missing.add(key);
             }
+            int relative = indent - fromIndent;
+            // Komentarz płycej niż klucz trafia na kolumnę klucza
+            int target = relative <= 0 ? toIndent
+                    : toIndent + relative / fromStep * toStep + relative % fromStep;
+            out.add(" ".repeat(target) + line.substring(indent));
         }
-        return missing;
+        return out;
     }
 
-    private boolean lineExists(List<String> lines, String prefix) {
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if (trimmed.startsWith(prefix) && !trimmed.startsWith("#")) {
-                return true;
+    private void generateLines(FileConfiguration config, String path, int indent, List<String> out) {
+        String leaf = path.substring(path.lastIndexOf('.') + 1);
+        String prefix = " ".repeat(indent);
+        if (config.isConfigurationSection(path)) {
+            out.add(prefix + leaf + ":");
+            for (String child : config.getConfigurationSection(path).getKeys(false)) {
+                generateLines(config, path + "." + child, indent + 2, out);
             }
+        } else {
+            out.add(prefix + leaf + ": " + toYaml(config.get(path)));
         }
-        return false;
     }
 
-    private List<String> extractSection(List<String> lines, String sectionName) {
-        List<String> result = new ArrayList<>();
-
-        int sectionStart = -1;
-        for (int i = 0; i < lines.size(); i++) {
-            String trimmed = lines.get(i).trim();
-            if (!trimmed.startsWith("#") && trimmed.startsWith(sectionName + ":") && getIndent(lines.get(i)) == 0) {
-                sectionStart = i;
-                break;
-            }
-        }
-        if (sectionStart == -1) {
-            logger.warning("[ConfigUpdater] Nie znaleziono sekcji '" + sectionName + "' w domyslnym configu!");
-            return result;
-        }
-
-        // Komentarze nad sekcją
-        int commentStart = sectionStart;
-        while (commentStart > 0) {
-            String prev = lines.get(commentStart - 1).trim();
-            if (prev.startsWith("#") || prev.isEmpty()) {
-                commentStart--;
-            } else {
-                break;
-            }
-        }
-        // Pomiń puste linie na samym początku
-        while (commentStart < sectionStart && lines.get(commentStart).trim().isEmpty()) {
-            commentStart++;
-        }
-
-        // Nagłówek + komentarze
-        for (int i = commentStart; i <= sectionStart; i++) {
-            result.add(lines.get(i));
+    /**
+     * Zapisuje do pliku tymczasowego i podmienia config jednym rename — przy
+     * awarii w trakcie zapisu zostaje stary, cały plik.
+     */
+    private void writeAtomically(File target, List<String> lines) throws IOException {
+        Path path = target.toPath();
+        Path temp = path.resolveSibling(target.getName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
         }
+    }
 
-        // Dzieci sekcji
-        for (int i = sectionStart + 1; i < lines.size(); i++) {
-            String line = lines.get(i);
-            if (getIndent(line) > 0 || line.trim().isEmpty()) {
-                result.add(line);
-            } else {
-                break;
+    private byte[] readResourceBytes() {
+        try (InputStream is = plugin.getResource("config.yml")) {
+            if (is == null) {
+                logger.warning("[ConfigUpdater] plugin.getResource('config.yml') zwrocilo null!");
+                return null;
             }
+            return is.readAllBytes();
+        } catch (Exception e) {
+            logger.severe("[ConfigUpdater] Blad czytania zasobu: " + e.getMessage());
+            return null;
         }
+    }
 
-        // Usuń puste linie na końcu
-        while (!result.isEmpty() && result.get(result.size() - 1).trim().isEmpty()) {
-            result.remove(result.size() - 1);
-        }
-
-        return result;
+    private List<String> toLines(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8).lines().collect(Collectors.toCollection(ArrayList::new));
     }
 
+    // ---- stan z poprzedniego startu ----
+
     /**
-     * Wyciąga linie dla konkretnego klucza z domyślnego configu.
-     * Np. dla klucza "messages.update-available" szuka linii " update-available:" w
-     * sekcji messages.
-     * Zachowuje komentarze nad kluczem.
+     * Sprawdza, czy config użytkownika, domyślny config i wersja pluginu są takie
+     * same jak przy ostatniej udanej aktualizacji.
      */
-    private List<String> extractKeyLines(List<String> lines, String yamlPath) {
-        List<String> result = new ArrayList<>();
-        String[] parts = yamlPath.split("\\.");
-
-        // Szukamy ostatniego segmentu klucza z odpowiednim wcięciem
-        String leafKey = parts[parts.length - 1];
-        int expectedIndent = (parts.length - 1) * 2; // 2 spacje na poziom
-
-        // Znajdź sekcję nadrzędną
-        int searchStart = 0;
-        for (int p = 0; p < parts.length - 1; p++) {
-            String parentKey = parts[p];
-            int parentIndent = p * 2;
-            boolean found = false;
-            for (int i = searchStart; i < lines.size(); i++) {
-                String line = lines.get(i);
-                String trimmed = line.trim();
-                if (!trimmed.startsWith("#") && getIndent(line) == parentIndent
-                        && trimmed.startsWith(parentKey + ":")) {
-                    searchStart = i + 1;
-                    found = true;
-                    break;
-                }
-            }
-            if (!found)
-                return result;
+    private boolean isUnchanged(File stateFile, String pluginVersion, String defaultHash, String userHash) {
+        if (!stateFile.exists())
+            return false;
+        Properties state = new Properties();
+        try (Reader reader = Files.newBufferedReader(stateFile.toPath(), StandardCharsets.UTF_8)) {
+            state.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            return false;
         }
+        return pluginVersion.equals(state.getProperty("plugin-version"))
+                && defaultHash.equals(state.getProperty("default-config"))
+                && userHash.equals(state.getProperty("user-config"));
+    }
 
-        // Szukaj klucza liścia
-        for (int i = searchStart; i < lines.size(); i++) {
-            String line = lines.get(i);
-            String trimmed = line.trim();
-
-            // Sprawdź czy wyszliśmy z sekcji
-            if (!trimmed.isEmpty() && !trimmed.startsWith("#") && getIndent(line) < expectedIndent) {
-                break;
-            }
-
-            if (getIndent(line) == expectedIndent && !trimmed.startsWith("#")
-                    && trimmed.startsWith(leafKey + ":")) {
-                // Znaleziono klucz — dodaj komentarze nad nim
-                int commentStart = i;
-                while (commentStart > searchStart) {
-                    String prev = lines.get(commentStart - 1).trim();
-                    if (prev.startsWith("#") || prev.isEmpty()) {
-                        commentStart--;
-                    } else {
-                        break;
-                    }
-                }
-                // Pomiń puste linie na początku
-                while (commentStart < i && lines.get(commentStart).trim().isEmpty()) {
-                    commentStart++;
-                }
-
-                // Dodaj komentarze i sam klucz
-                for (int j = commentStart; j <= i; j++) {
-                    result.add(lines.get(j));
-                }
-
-                // Dodaj dzieci klucza (jeśli ma zagnieżdżone wartości)
-                for (int j = i + 1; j < lines.size(); j++) {
-                    String child = lines.get(j);
-                    if (getIndent(child) > expectedIndent || child.trim().isEmpty()) {
-                        result.add(child);
-                    } else {
-                        break;
-                    }
-                }
-
-                // Usuń puste linie na końcu
-                while (!result.isEmpty() && result.get(result.size() - 1).trim().isEmpty()) {
-                    result.remove(result.size() - 1);
-                }
+    private void saveState(File stateFile, String pluginVersion, String defaultHash, String userHash) {
+        Properties state = new Properties();
+        state.setProperty("plugin-version", pluginVersion);
+        state.setProperty("default-config", defaultHash);
+        state.setProperty("user-config", userHash);
+        try (Writer writer = Files.newBufferedWriter(stateFile.toPath(), StandardCharsets.UTF_8)) {
+            state.store(writer, "ConfigUpdater - nie edytuj, usun plik aby wymusic sprawdzenie configu");
+        } catch (IOException e) {
+            logger.warning("[ConfigUpdater] Nie udalo sie zapisac " + STATE_FILE + ": " + e.getMessage());
+        }
+    }
 
-                return result;
-            }
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 jest zawsze dostępny w JRE
+            throw new IllegalStateException(e);
         }
+    }
 
-        return result;
+    private FileConfiguration loadYamlFromLines(List<String> lines) {
+        String joined = String.join("\n", lines);
+        return YamlConfiguration.loadConfiguration(new StringReader(joined));
     }
 
-    private int findSectionEnd(List<String> lines, String sectionName) {
-        boolean inSection = false;
-        int lastChildLine = -1;
-        for (int i = 0; i < lines.size(); i++) {
-            String line = lines.get(i);
-            String trimmed = line.trim();
-
-            if (!inSection) {
-                if (getIndent(line) == 0 && !trimmed.startsWith("#") && trimmed.startsWith(sectionName + ":")) {
-                    inSection = true;
-                    lastChildLine = i;
-                }
-            } else {
-                if (!trimmed.isEmpty() && !trimmed.startsWith("#") && getIndent(line) == 0) {
-                    // Dotarliśmy do następnej sekcji top-level
-                    return lastChildLine + 1;
-                }
-                // Śledź ostatnią linię z zawartością (wcięta = dziecko sekcji)
-                if (!trimmed.isEmpty() && !trimmed.startsWith("#") && getIndent(line) > 0) {
-                    lastChildLine = i;
-                }
+    private List<String> findMissingKeys(FileConfiguration userConfig, FileConfiguration defaultConfig) {
+        List<String> missing = new ArrayList<>();
+        for (String key : defaultConfig.getKeys(true)) {
+            if (defaultConfig.isConfigurationSection(key))
+                continue;
+            if (key.equals("config-version"))
+                continue;
+            if (!userConfig.contains(key)) {
+                missing.add(key);
             }
         }
-        return lastChildLine + 1;
+        return missing;
     }
 
     private String toYaml(Object value) {
@@ -483,15 +377,4 @@ public class ConfigUpdater {
         }
         return String.valueOf(value);
     }
-
-    private int getIndent(String line) {
-        int count = 0;
-        for (char c : line.toCharArray()) {
-            if (c == ' ')
-                count++;
-            else
-                break;
-        }
-        return count;
-    }
 }
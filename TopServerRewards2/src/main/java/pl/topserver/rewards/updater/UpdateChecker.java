@@ -13,26 +13,53 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.scheduler.BukkitTask;
 
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-
 import pl.topserver.rewards.TopServerRewards;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import pl.topserver.rewards.api.JsonResponseDecoder;
+import pl.topserver.rewards.api.ReleaseInfo;
+import pl.topserver.rewards.messages.Message;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.URL;
-
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sprawdza, czy na GitHubie jest nowsze wydanie.
+ * <p>
+ * Ostatni wynik razem z ETag i Last-Modified jest zapisywany w
+ * update-cache.properties, więc po restarcie plugin nie pyta GitHuba ponownie
+ * przed upływem interwału, a kolejne zapytania są warunkowe (304 nie zużywa
+ * limitu zapytań). Po błędach kolejna próba jest odkładana coraz dalej,
+ * z losowym rozrzutem, żeby serwery za jednym NAT-em nie pytały naraz.
+ */
 public class UpdateChecker implements Listener {
 
     private static final String GITHUB_API_URL = "https://api.github.com/repos/DonPedroTV/TopServerRewards2/releases/latest";
+    private static final Message DEFAULT_UPDATE_MESSAGE = Message.compile(
+            "&e[TopServerRewards] &aDostepna nowa wersja: &f{new_version} &7(obecna: {current_version})");
+
+    private static final String CACHE_FILE = "update-cache.properties";
+    private static final long FIRST_RETRY_MILLIS = 5 * 60_000L;
 
     private final TopServerRewards plugin;
-    private String latestVersion = null;
-    private String downloadUrl = null;
-    private boolean updateAvailable = false;
+    private volatile String latestVersion = null;
+    private volatile String downloadUrl = null;
+    private volatile boolean updateAvailable = false;
     private BukkitTask checkTask;
 
+    private long intervalMillis;
+    private int failures;
+    private String etag;
+    private String lastModified;
+    private String cachedTag;
+    private long checkedAt;
+
     public UpdateChecker(TopServerRewards plugin) {
         this.plugin = plugin;
     }
@@ -45,10 +72,18 @@ public class UpdateChecker implements Listener {
 
         Bukkit.getPluginManager().registerEvents(this, plugin);
 
-        int intervalHours = plugin.getConfig().getInt("update-checker.check-interval", 6);
-        long intervalTicks = intervalHours * 60L * 60L * 20L;
-
-        checkTask = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, this::checkForUpdate, 60L, intervalTicks);
+        int intervalHours = Math.max(1, plugin.getConfig().getInt("update-checker.check-interval", 6));
+        intervalMillis = intervalHours * 60L * 60L * 1000L;
+
+        // Ostatni wynik z dysku — jeśli jest świeży, nie pytamy GitHuba od razu
+        loadCache();
+        long sinceLastCheck = System.currentTimeMillis() - checkedAt;
+        if (cachedTag != null && sinceLastCheck >= 0 && sinceLastCheck < intervalMillis) {
+            applyTag(cachedTag);
+            scheduleCheck(intervalMillis - sinceLastCheck);
+        } else {
+            scheduleCheck(3000L);
+        }
     }
 
     public void stop() {
@@ -58,7 +93,23 @@ public class UpdateChecker implements Listener {
         }
     }
 
+    private void scheduleCheck(long delayMillis) {
+        if (!plugin.isEnabled())
+            return;
+        long delayTicks = Math.max(1L, delayMillis / 50L);
+        checkTask = Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, this::checkForUpdate, delayTicks);
+    }
+
+    /**
+     * Interwał z rozrzutem ±5%, żeby serwery uruchomione razem nie pytały razem.
+     */
+    private long jittered(long millis, double spread) {
+        double factor = 1.0 + (ThreadLocalRandom.current().nextDouble() * 2.0 - 1.0) * spread;
+        return (long) (millis * factor);
+    }
+
     private void checkForUpdate() {
+        long retryAfterMillis = 0;
         try {
             URL url = new URL(GITHUB_API_URL);
             HttpURLConnection conn = (HttpURLConnection) url.openConnection();
@@ -67,48 +118,128 @@ public class UpdateChecker implements Listener {
             conn.setReadTimeout(5000);
             conn.setRequestProperty("User-Agent", "TopServerRewards/" + plugin.getDescription().getVersion());
             conn.setRequestProperty("Accept", "application/vnd.github.v3+json");
-
-            if (conn.getResponseCode() != 200) {
-                plugin.getLogger()
-                        .warning("Nie udalo sie sprawdzic aktualizacji (HTTP " + conn.getResponseCode() + ")");
+            conn.setRequestProperty("Accept-Encoding", "gzip");
+            // Zapytanie warunkowe — 304 nie liczy się do limitu GitHuba
+            if (cachedTag != null && etag != null)
+                conn.setRequestProperty("If-None-Match", etag);
+            if (cachedTag != null && lastModified != null)
+                conn.setRequestProperty("If-Modified-Since", lastModified);
+
+            int status = conn.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                conn.disconnect();
+                onChecked(cachedTag);
                 return;
             }
 
-            BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+            if (status != 200) {
+                String retryAfter = conn.getHeaderField("Retry-After");
+                if (retryAfter != null) {
+                    try {
+                        retryAfterMillis = Long.parseLong(retryAfter.trim()) * 1000L;
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                conn.disconnect();
+                onFailure("HTTP " + status, retryAfterMillis);
+                return;
             }
-            reader.close();
-            conn.disconnect();
 
-            JSONObject json = (JSONObject) new JSONParser().parse(response.toString());
-            String tagName = (String) json.get("tag_name");
+            // Z odpowiedzi GitHuba potrzebujemy tylko tag_name — reszta jest pomijana
+            ReleaseInfo release = JsonResponseDecoder.decodeRelease(conn.getInputStream(),
+                    JsonResponseDecoder.isGzip(conn.getContentEncoding()));
+            String newEtag = conn.getHeaderField("ETag");
+            String newLastModified = conn.getHeaderField("Last-Modified");
+            conn.disconnect();
 
-            if (tagName == null)
+            String tagName = release.tagName();
+            if (tagName == null) {
+                onFailure("brak tag_name w odpowiedzi", 0);
                 return;
-
-            String remoteVersion = tagName.startsWith("v") ? tagName.substring(1) : tagName;
-            String currentVersion = plugin.getDescription().getVersion();
-
-            if (isNewerVersion(remoteVersion, currentVersion)) {
-                latestVersion = remoteVersion;
-                downloadUrl = "https://topserver.pl/tutorial.php";
-                updateAvailable = true;
-
-                plugin.getLogger().info("========================================");
-                plugin.getLogger().info("Dostepna nowa wersja TopServerRewards!");
-                plugin.getLogger().info("Obecna: " + currentVersion + " -> Nowa: " + latestVersion);
-                plugin.getLogger().info("Pobierz: https://topserver.pl/tutorial.php");
-                plugin.getLogger().info("========================================");
-            } else {
-                updateAvailable = false;
-                plugin.getLogger().info("TopServerRewards jest aktualny (v" + currentVersion + ").");
             }
 
+            etag = newEtag;
+            lastModified = newLastModified;
+            onChecked(tagName);
+
         } catch (Exception e) {
-            plugin.getLogger().warning("Blad podczas sprawdzania aktualizacji: " + e.getMessage());
+            onFailure(e.getMessage(), 0);
+        }
+    }
+
+    private void onChecked(String tagName) {
+        failures = 0;
+        cachedTag = tagName;
+        checkedAt = System.currentTimeMillis();
+        saveCache();
+        applyTag(tagName);
+        scheduleCheck(jittered(intervalMillis, 0.05));
+    }
+
+    /**
+     * Kolejna próba po 5, 10, 20... minutach (z rozrzutem), najpóźniej po zwykłym interwale.
+     */
+    private void onFailure(String reason, long retryAfterMillis) {
+        failures++;
+        plugin.getLogger().warning("Nie udalo sie sprawdzic aktualizacji (" + reason + ")");
+        long backoff = FIRST_RETRY_MILLIS << Math.min(failures - 1, 16);
+        long delay = Math.max(retryAfterMillis, jittered(Math.min(intervalMillis, backoff), 0.5));
+        scheduleCheck(delay);
+    }
+
+    private void applyTag(String tagName) {
+        String remoteVersion = tagName.startsWith("v") ? tagName.substring(1) : tagName;
+        String currentVersion = plugin.getDescription().getVersion();
+
+        if (isNewerVersion(remoteVersion, currentVersion)) {
+            latestVersion = remoteVersion;
+            downloadUrl = "https://topserver.pl/tutorial.php";
+            updateAvailable = true;
+
+            plugin.getLogger().info("========================================");
+            plugin.getLogger().info("Dostepna nowa wersja TopServerRewards!");
+            plugin.getLogger().info("Obecna: " + currentVersion + " -> Nowa: " + latestVersion);
+            plugin.getLogger().info("Pobierz: https://topserver.pl/tutorial.php");
+            plugin.getLogger().info("========================================");
+        } else {
+            updateAvailable = false;
+            plugin.getLogger().info("TopServerRewards jest aktualny (v" + currentVersion + ").");
+        }
+    }
+
+    private void loadCache() {
+        File file = new File(plugin.getDataFolder(), CACHE_FILE);
+        if (!file.exists())
+            return;
+        Properties cache = new Properties();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            cache.load(reader);
+        } catch (IOException | IllegalArgumentException e) {
+            return;
+        }
+        cachedTag = cache.getProperty("tag-name");
+        etag = cache.getProperty("etag");
+        lastModified = cache.getProperty("last-modified");
+        try {
+            checkedAt = Long.parseLong(cache.getProperty("checked-at", "0"));
+        } catch (NumberFormatException e) {
+            checkedAt = 0;
+        }
+    }
+
+    private void saveCache() {
+        Properties cache = new Properties();
+        cache.setProperty("tag-name", cachedTag);
+        cache.setProperty("checked-at", String.valueOf(checkedAt));
+        if (etag != null)
+            cache.setProperty("etag", etag);
+        if (lastModified != null)
+            cache.setProperty("last-modified", lastModified);
+        File file = new File(plugin.getDataFolder(), CACHE_FILE);
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            cache.store(writer, "Ostatnie sprawdzenie aktualizacji");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Nie udalo sie zapisac " + CACHE_FILE + ": " + e.getMessage());
         }
     }
 
@@ -148,15 +279,13 @@ public class UpdateChecker implements Listener {
 
             String currentVersion = plugin.getDescription().getVersion();
 
-            String defaultMsg = "&e[TopServerRewards] &aDostepna nowa wersja: &f{new_version} &7(obecna: {current_version})";
-            String msgUpdate = plugin.getConfig().getString("messages.update-available", "");
-            if (msgUpdate == null || msgUpdate.isEmpty() || msgUpdate.equalsIgnoreCase("false")) {
-                msgUpdate = defaultMsg;
+            Message updateMessage = plugin.getMessages().get("messages.update-available");
+            if (!updateMessage.isEnabled()) {
+                updateMessage = DEFAULT_UPDATE_MESSAGE;
             }
 
-            msgUpdate = ChatColor.translateAlternateColorCodes('&',
-                    msgUpdate.replace("{new_version}", latestVersion)
-                            .replace("{current_version}", currentVersion));
+            String msgUpdate = updateMessage.render("{new_version}", latestVersion,
+                    "{current_version}", currentVersion);
 
             TextComponent message = new TextComponent(msgUpdate + " ");
 
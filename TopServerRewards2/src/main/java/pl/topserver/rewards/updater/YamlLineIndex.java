@@ -0,0 +1,184 @@
+package pl.topserver.rewards.updater;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indeks pliku YAML budowany jednym przejściem po liniach: dla każdej ścieżki
+ * ("messages.help.title") zapamiętuje, gdzie zaczynają się komentarze nad
+ * kluczem, w której linii jest klucz, gdzie kończą się jego dzieci i jakie
+ * ma wcięcie. Dzięki temu ConfigUpdater nie przeszukuje pliku osobno dla
+ * każdego brakującego klucza.
+ * <p>
+ * To nie jest parser YAML — rozpoznaje tylko styl blokowy, którego używa
+ * config.yml. Wartości (także wieloliniowe | i >) nie są interpretowane.
+ */
+final class YamlLineIndex {
+
+    static final class Entry {
+
+        final String path;
+        final int indent;
+        /** Pierwsza linia po poprzedniej treści (łącznie z pustymi liniami). */
+        final int blockStart;
+        /** Pierwsza linia komentarza nad kluczem (bez pustych linii). */
+        final int commentStart;
+        final int keyLine;
+        /** Linia za ostatnią linią treści klucza i jego dzieci. */
+        int end;
+
+        private Entry(String path, int indent, int blockStart, int commentStart, int keyLine) {
+            this.path = path;
+            this.indent = indent;
+            this.blockStart = blockStart;
+            this.commentStart = commentStart;
+            this.keyLine = keyLine;
+            this.end = keyLine + 1;
+        }
+    }
+
+    private final List<String> lines;
+    private final Map<String, Entry> entries = new HashMap<>();
+    /** Najmniejsza różnica wcięć między kluczem a jego rodzicem. */
+    private int step = Integer.MAX_VALUE;
+
+    private YamlLineIndex(List<String> lines) {
+        this.lines = lines;
+    }
+
+    static YamlLineIndex build(List<String> lines) {
+        YamlLineIndex index = new YamlLineIndex(lines);
+        index.scan();
+        return index;
+    }
+
+    private void scan() {
+        Deque<Entry> open = new ArrayDeque<>();
+        int lastContent = -1;
+        // Wcięcie klucza z wartością | lub > — głębsze linie to tekst, nie klucze
+        int scalarIndent = -1;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int indent = indentOf(line);
+            if (indent == line.length() || line.charAt(indent) == '#')
+                continue;
+
+            if (scalarIndent >= 0) {
+                if (indent > scalarIndent) {
+                    lastContent = i;
+                    continue;
+                }
+                scalarIndent = -1;
+            }
+
+            int colon = keyEnd(line, indent);
+            if (colon < 0) {
+                // Element listy albo dalszy ciąg wartości
+                lastContent = i;
+                continue;
+            }
+
+            while (!open.isEmpty() && open.peek().indent >= indent)
+                open.pop().end = lastContent + 1;
+            if (!open.isEmpty())
+                step = Math.min(step, indent - open.peek().indent);
+
+            String key = unquote(line.substring(indent, colon));
+            String path = open.isEmpty() ? key : open.peek().path + "." + key;
+
+            int blockStart = lastContent + 1;
+            int commentStart = blockStart;
+            while (commentStart < i && lines.get(commentStart).trim().isEmpty())
+                commentStart++;
+
+            Entry entry = new Entry(path, indent, blockStart, commentStart, i);
+            entries.putIfAbsent(path, entry);
+            open.push(entry);
+
+            String value = line.substring(colon + 1).trim();
+            if (value.startsWith("|") || value.startsWith(">"))
+                scalarIndent = indent;
+            lastContent = i;
+        }
+
+        while (!open.isEmpty())
+            open.pop().end = lastContent + 1;
+    }
+
+    /**
+     * Zwraca indeks ':' kończącego klucz, albo -1 jeśli linia nie zaczyna się od klucza.
+     */
+    private static int keyEnd(String line, int indent) {
+        char first = line.charAt(indent);
+        if (first == '-' && (indent + 1 == line.length() || line.charAt(indent + 1) == ' '))
+            return -1;
+
+        int i = indent;
+        if (first == '"' || first == '\'') {
+            int close = line.indexOf(first, indent + 1);
+            if (close < 0)
+                return -1;
+            i = close + 1;
+        }
+        for (; i < line.length(); i++) {
+            if (line.charAt(i) == ':' && (i + 1 == line.length() || line.charAt(i + 1) == ' '))
+                return i > indent ? i : -1;
+        }
+        return -1;
+    }
+
+    private static String unquote(String key) {
+        key = key.trim();
+        if (key.length() >= 2 && (key.charAt(0) == '"' || key.charAt(0) == '\'')
+                && key.charAt(key.length() - 1) == key.charAt(0))
+            return key.substring(1, key.length() - 1);
+        return key;
+    }
+
+    static int indentOf(String line) {
+        int count = 0;
+        while (count < line.length() && line.charAt(count) == ' ')
+            count++;
+        return count;
+    }
+
+    Entry get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * Krok wcięcia pliku (2, gdy w pliku nie ma zagnieżdżonych kluczy).
+     */
+    int indentStep() {
+        return step == Integer.MAX_VALUE ? 2 : step;
+    }
+
+    /**
+     * Wcięcie dzieci sekcji — pierwszej linii treści pod kluczem, a gdy
+     * sekcja jest pusta, wcięcie klucza powiększone o krok pliku.
+     */
+    int childIndent(Entry parent) {
+        for (int i = parent.keyLine + 1; i < parent.end; i++) {
+            String line = lines.get(i);
+            int indent = indentOf(line);
+            if (indent < line.length() && line.charAt(indent) != '#')
+                return indent;
+        }
+        return parent.indent + indentStep();
+    }
+
+    /**
+     * Linie klucza razem z komentarzami nad nim i dziećmi, albo pusta lista.
+     */
+    List<String> block(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null)
+            return new ArrayList<>();
+        return new ArrayList<>(lines.subList(entry.commentStart, entry.end));
+    }
+}
@@ -0,0 +1,118 @@
+package pl.topserver.rewards.vote;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+import pl.topserver.rewards.TopServerRewards;
+import pl.topserver.rewards.api.ApiResponse;
+import pl.topserver.rewards.api.TopServerApi;
+import pl.topserver.rewards.claim.ClaimState;
+import pl.topserver.rewards.config.PluginSettings;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sprawdza głos gracza zaraz po wejściu na serwer, zanim wpisze /ts odbierz.
+ * <p>
+ * Wynik trafia do {@link VoteStatusCache} albo {@link NegativeCheckCache},
+ * więc pierwsze odbieranie idzie od razu do claim. Zapytania startują z
+ * losowym opóźnieniem i nie częściej niż max-per-second, żeby po restarcie,
+ * gdy wchodzi wielu graczy naraz, nie wysłać ich wszystkich w jednej chwili.
+ * Na głównym wątku jest tylko wyliczenie terminu — zapytanie idzie
+ * asynchronicznie.
+ */
+public class JoinPrefetcher implements Listener {
+
+    /** Gracze, którzy czekaliby dłużej, są pomijani — i tak zwykle odbierają wcześniej. */
+    private static final long MAX_QUEUE_MILLIS = 60_000L;
+
+    private final TopServerRewards plugin;
+    private final VoteStatusCache cache;
+    private final NegativeCheckCache negativeCache;
+
+    /** Najwcześniejszy wolny termin kolejnego zapytania; tylko z głównego wątku. */
+    private long nextSlotMillis;
+
+    public JoinPrefetcher(TopServerRewards plugin, VoteStatusCache cache, NegativeCheckCache negativeCache) {
+        this.plugin = plugin;
+        this.cache = cache;
+        this.negativeCache = negativeCache;
+    }
+
+    public void start() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        PluginSettings settings = plugin.getSettings();
+        if (!settings.isJoinPrefetchEnabled() || settings.getServerIp().isEmpty())
+            return;
+
+        Player player = event.getPlayer();
+        if (!player.hasPermission("topserver.claim"))
+            return;
+
+        long now = System.currentTimeMillis();
+        long jitter = settings.getJoinPrefetchJitterMillis();
+        long due = now + settings.getJoinPrefetchDelayMillis()
+                + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0L);
+        long slot = Math.max(due, nextSlotMillis);
+        if (slot - now > MAX_QUEUE_MILLIS)
+            return;
+        nextSlotMillis = slot + 1000L / settings.getJoinPrefetchMaxPerSecond();
+
+        UUID playerId = player.getUniqueId();
+        String playerName = player.getName();
+        long delayTicks = (slot - now) / 50L;
+        Bukkit.getScheduler().runTaskLaterAsynchronously(plugin, () -> prefetch(playerId, playerName), delayTicks);
+    }
+
+    private void prefetch(UUID playerId, String playerName) {
+        // Gracz mógł w tym czasie sam zacząć odbierać nagrodę
+        if (plugin.getClaimTracker().getState(playerId) != ClaimState.IDLE)
+            return;
+
+        TopServerApi api = plugin.getApi();
+        api.check(playerName).whenComplete((response, e) -> {
+            if (e != null || response == null || !response.success())
+                return;
+            store(playerId, response);
+        });
+    }
+
+    private void store(UUID playerId, ApiResponse result) {
+        if (!result.hasReward()) {
+            negativeCache.put(playerId, result.messageOrEmpty());
+            return;
+        }
+        List<ApiResponse> votes = result.pendingVotes();
+        if (votes.isEmpty())
+            return;
+
+        cache.put(playerId, new VoteStatus(votes, true, System.currentTimeMillis()));
+        negativeCache.invalidate(playerId);
+
+        if (!plugin.getSettings().isJoinPrefetchNotify() || !plugin.isEnabled())
+            return;
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            Player player = Bukkit.getPlayer(playerId);
+            if (player == null)
+                return;
+            PluginSettings settings = plugin.getSettings();
+            settings.getMessages().get("messages.reward-waiting").send(player,
+                    "{command}", "/" + settings.getMainCommand() + " " + settings.getClaimSub());
+        });
+    }
+}
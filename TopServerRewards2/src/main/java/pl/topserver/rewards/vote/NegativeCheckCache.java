@@ -0,0 +1,89 @@
+package pl.topserver.rewards.vote;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Krótkotrwała pamięć odpowiedzi "brak nagrody" (has_reward=false) z API.
+ * Gracze często wpisują /ts odbierz kilka razy zaraz po głosowaniu — powtórki
+ * w czasie TTL dostają zapamiętaną wiadomość z API bez kolejnego zapytania.
+ * Rozmiar jest ograniczony, najdawniej używane wpisy są usuwane (LRU).
+ * Wpis musi zostać unieważniony, gdy wiadomo, że gracz ma nagrodę.
+ */
+public class NegativeCheckCache {
+
+    private final Map<UUID, Entry> entries;
+    private volatile long ttlMillis;
+    private volatile int maxSize;
+
+    public NegativeCheckCache(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > NegativeCheckCache.this.maxSize;
+            }
+        };
+    }
+
+    public void configure(long ttlMillis, int maxSize) {
+        this.ttlMillis = ttlMillis;
+        this.maxSize = maxSize;
+        clear();
+    }
+
+    public void put(UUID playerId, String apiMessage) {
+        if (ttlMillis <= 0 || maxSize <= 0)
+            return;
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        synchronized (entries) {
+            entries.put(playerId, new Entry(apiMessage, expiresAt));
+        }
+    }
+
+    /**
+     * Zwraca zapamiętaną wiadomość z API albo null, jeśli brak aktualnego wpisu.
+     */
+    public String get(UUID playerId) {
+        synchronized (entries) {
+            Entry entry = entries.get(playerId);
+            if (entry == null)
+                return null;
+            if (System.currentTimeMillis() >= entry.expiresAt) {
+                entries.remove(playerId);
+                return null;
+            }
+            return entry.apiMessage;
+        }
+    }
+
+    public void invalidate(UUID playerId) {
+        synchronized (entries) {
+            entries.remove(playerId);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+        private final String apiMessage;
+        private final long expiresAt;
+
+        private Entry(String apiMessage, long expiresAt) {
+            this.apiMessage = apiMessage;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
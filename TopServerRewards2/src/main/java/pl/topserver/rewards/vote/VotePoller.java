@@ -0,0 +1,187 @@
+package pl.topserver.rewards.vote;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import pl.topserver.rewards.TopServerRewards;
+import pl.topserver.rewards.api.ApiResponse;
+import pl.topserver.rewards.api.CircuitOpenException;
+import pl.topserver.rewards.api.TopServerApi;
+import pl.topserver.rewards.config.PluginSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Okresowo sprawdza głosy wszystkich graczy online.
+ * Gracze są grupowani w paczki (action=check_batch), więc jeden cykl to
+ * liczba_graczy / batch-size zapytań zamiast jednego zapytania na gracza.
+ * Jeśli API odpowie wprost, że nie zna check_batch, poller sprawdza graczy
+ * pojedynczo i po {@link #BATCH_RETRY_MILLIS} próbuje zapytań zbiorczych
+ * ponownie. Błąd sieci, kod inny niż 200 albo zwykła odmowa API to problem
+ * przejściowy — ten cykl jest pomijany.
+ */
+public class VotePoller {
+
+    private final TopServerRewards plugin;
+    private final VoteStatusCache cache;
+    private final NegativeCheckCache negativeCache;
+    /** Po jakim czasie znowu spróbować check_batch, gdy API go nie obsługiwało. */
+    private static final long BATCH_RETRY_MILLIS = 30L * 60L * 1000L;
+
+    private BukkitTask pollTask;
+    private volatile boolean batchEnabled = true;
+    /** Do kiedy sprawdzamy pojedynczo, bo API nie zna check_batch; 0 = zapytania zbiorcze. */
+    private volatile long batchRetryAt;
+
+    public VotePoller(TopServerRewards plugin, VoteStatusCache cache, NegativeCheckCache negativeCache) {
+        this.plugin = plugin;
+        this.cache = cache;
+        this.negativeCache = negativeCache;
+    }
+
+    public void start() {
+        PluginSettings settings = plugin.getSettings();
+        if (!settings.isVotePollerEnabled())
+            return;
+
+        batchEnabled = settings.isVotePollerBatch();
+        batchRetryAt = 0;
+
+        int intervalSeconds = settings.getVotePollerIntervalSeconds();
+        long intervalTicks = intervalSeconds * 20L;
+
+        // Wpis z pollera jest ważny przez dwa cykle, potem claim znowu pyta API
+        cache.setMaxAgeMillis(intervalSeconds * 2000L);
+
+        // Lista graczy jest pobierana na głównym wątku, zapytania idą asynchronicznie
+        pollTask = Bukkit.getScheduler().runTaskTimer(plugin, this::poll, intervalTicks, intervalTicks);
+        plugin.getLogger().info("Sprawdzanie glosow graczy online co " + intervalSeconds + "s.");
+    }
+
+    public void stop() {
+        if (pollTask != null) {
+            pollTask.cancel();
+            pollTask = null;
+        }
+    }
+
+    private void poll() {
+        if (Bukkit.getOnlinePlayers().isEmpty())
+            return;
+
+        // API może zwrócić nick w innej wielkości liter
+        Map<String, UUID> players = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.hasPermission("topserver.claim"))
+                players.put(player.getName(), player.getUniqueId());
+        }
+        if (players.isEmpty())
+            return;
+
+        TopServerApi api = plugin.getApi();
+        if (api.getServerIp().isEmpty())
+            return;
+
+        if (!batchEnabled || System.currentTimeMillis() < batchRetryAt) {
+            pollEach(api, players);
+            return;
+        }
+
+        int batchSize = plugin.getSettings().getVotePollerBatchSize();
+        List<String> names = new ArrayList<>(players.keySet());
+        for (int from = 0; from < names.size(); from += batchSize) {
+            List<String> chunk = names.subList(from, Math.min(from + batchSize, names.size()));
+            pollBatch(api, chunk, players);
+        }
+    }
+
+    private void pollBatch(TopServerApi api, List<String> chunk, Map<String, UUID> players) {
+        api.checkBatch(chunk).whenComplete((response, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (!(cause instanceof CircuitOpenException))
+                    plugin.getLogger().warning("Blad podczas zbiorczego sprawdzania glosow: " + cause.getMessage());
+                return;
+            }
+
+            if (isBatchUnsupported(response)) {
+                // Na razie sprawdzamy graczy pojedynczo, check_batch spróbujemy później
+                markBatchUnsupported();
+                Map<String, UUID> subset = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                for (String name : chunk)
+                    subset.put(name, players.get(name));
+                pollEach(api, subset);
+                return;
+            }
+            if (response == null || !response.success()) {
+                plugin.getLogger().warning("Blad podczas zbiorczego sprawdzania glosow: "
+                        + (response == null ? "niepoprawna odpowiedz API" : response.errorOrDefault()));
+                return;
+            }
+            markBatchSupported();
+
+            Map<String, ApiResponse> results = response.results();
+            for (Map.Entry<String, ApiResponse> result : results.entrySet()) {
+                UUID playerId = players.get(result.getKey());
+                if (playerId != null)
+                    store(playerId, result.getValue());
+            }
+        });
+    }
+
+    /**
+     * Czy API odpowiedziało wprost, że nie zna check_batch: odmowa z błędem
+     * o akcji albo poprawna odpowiedź bez "results" (stare API zignorowało akcję).
+     */
+    private static boolean isBatchUnsupported(ApiResponse response) {
+        if (response == null)
+            return false;
+        if (response.success())
+            return response.results() == null;
+        String error = response.errorOrDefault().toLowerCase(Locale.ROOT);
+        return error.contains("action") || error.contains("akcj") || error.contains("unsupported")
+                || error.contains("nieobslug") || error.contains("nieobsług");
+    }
+
+    private synchronized void markBatchUnsupported() {
+        long now = System.currentTimeMillis();
+        if (now < batchRetryAt)
+            return;
+        batchRetryAt = now + BATCH_RETRY_MILLIS;
+        plugin.getLogger().warning("API nie obsluguje zbiorczego sprawdzania glosow, sprawdzam graczy "
+                + "pojedynczo - ponowna proba za " + BATCH_RETRY_MILLIS / 60_000L + " min.");
+    }
+
+    private synchronized void markBatchSupported() {
+        if (batchRetryAt == 0)
+            return;
+        batchRetryAt = 0;
+        plugin.getLogger().info("API znowu obsluguje zbiorcze sprawdzanie glosow.");
+    }
+
+    private void pollEach(TopServerApi api, Map<String, UUID> players) {
+        for (Map.Entry<String, UUID> entry : players.entrySet()) {
+            UUID playerId = entry.getValue();
+            api.check(entry.getKey()).whenComplete((response, e) -> {
+                if (e == null && response != null && response.success())
+                    store(playerId, response);
+            });
+        }
+    }
+
+    private void store(UUID playerId, ApiResponse result) {
+        List<ApiResponse> votes = result.pendingVotes();
+        if (!result.hasReward() || votes.isEmpty())
+            return;
+
+        cache.put(playerId, new VoteStatus(votes, true, System.currentTimeMillis()));
+        negativeCache.invalidate(playerId);
+    }
+}
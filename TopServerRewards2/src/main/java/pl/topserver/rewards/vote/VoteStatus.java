@@ -0,0 +1,37 @@
+package pl.topserver.rewards.vote;
+
+import pl.topserver.rewards.api.ApiResponse;
+
+import java.util.List;
+
+/**
+ * Niezmienny wynik sprawdzenia głosu gracza, który ma nagrodę do odebrania.
+ * <p>
+ * Wynik z zapytania check zawiera wszystkie nieodebrane głosy (complete).
+ * Powiadomienie webhooka zna tylko jeden głos i nie wiadomo, czy nie czekają
+ * starsze — wtedy przy odbieraniu wszystkich głosów naraz trzeba zapytać API.
+ */
+public final class VoteStatus {
+
+    private final List<ApiResponse> votes;
+    private final boolean complete;
+    private final long checkedAt;
+
+    public VoteStatus(List<ApiResponse> votes, boolean complete, long checkedAt) {
+        this.votes = List.copyOf(votes);
+        this.complete = complete;
+        this.checkedAt = checkedAt;
+    }
+
+    public List<ApiResponse> getVotes() {
+        return votes;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public long getCheckedAt() {
+        return checkedAt;
+    }
+}
@@ -0,0 +1,52 @@
+package pl.topserver.rewards.vote;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pamięć podręczna głosów czekających na odebranie, per UUID gracza.
+ * Przechowuje tylko wyniki pozytywne — negatywny wynik mógłby się zdezaktualizować
+ * chwilę po oddaniu głosu. Bezpieczna dla wielu wątków.
+ */
+public class VoteStatusCache {
+
+    private final Map<UUID, VoteStatus> statuses = new ConcurrentHashMap<>();
+    private volatile long maxAgeMillis;
+
+    public VoteStatusCache(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public void setMaxAgeMillis(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public void put(UUID playerId, VoteStatus status) {
+        statuses.put(playerId, status);
+    }
+
+    public void remove(UUID playerId) {
+        statuses.remove(playerId);
+    }
+
+    /**
+     * Zwraca i usuwa aktualny wpis gracza, albo null jeśli brak lub jest przeterminowany.
+     */
+    public VoteStatus take(UUID playerId) {
+        VoteStatus status = statuses.remove(playerId);
+        if (status == null)
+            return null;
+        if (System.currentTimeMillis() - status.getCheckedAt() > maxAgeMillis)
+            return null;
+        return status;
+    }
+
+    public void clear() {
+        statuses.clear();
+    }
+
+    public int size() {
+        return statuses.size();
+    }
+}
@@ -0,0 +1,411 @@
+package pl.topserver.rewards.vote;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import pl.topserver.rewards.TopServerRewards;
+import pl.topserver.rewards.api.JsonResponseDecoder;
+import pl.topserver.rewards.api.VoteNotification;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Wbudowany serwer HTTP przyjmujący powiadomienia o głosach od TopServer.pl.
+ * <p>
+ * Każde powiadomienie jest podpisane HMAC-SHA256 ze wspólnego sekretu:
+ * nagłówek {@value #SIGNATURE_HEADER} zawiera hex z podpisu
+ * {@code timestamp + "." + treść}, a {@value #TIMESTAMP_HEADER} czas wysłania
+ * w sekundach. Stare znaczniki czasu i powtórzone podpisy są odrzucane.
+ * <p>
+ * Głos trafia do {@link VoteStatusCache}, więc /ts odbierz od razu woła
+ * claim bez zapytania check. Jeśli auto-claim jest włączony, a gracz jest
+ * online, nagroda jest odbierana od razu. Żądania obsługuje osobna,
+ * ograniczona pula wątków — główny wątek dostaje tylko gotowy wynik.
+ * <p>
+ * Gdy pula i jej kolejka są pełne, żądanie dostaje od razu 503 z Retry-After
+ * (bez czytania treści). Całe żądanie — nagłówki, treść i odpowiedź — ma
+ * limit czasu request-timeout-ms: po nim wątek jest przerywany, co zamyka
+ * połączenie, więc powolny nadawca nie zajmie wątku na dłużej.
+ */
+public class VoteWebhook {
+
+    static final String TIMESTAMP_HEADER = "X-TopServer-Timestamp";
+    static final String SIGNATURE_HEADER = "X-TopServer-Signature";
+
+    private static final String HMAC = "HmacSHA256";
+    /** Górny limit zapamiętanych podpisów; przy przepełnieniu wypadają najstarsze. */
+    private static final int MAX_SEEN_SIGNATURES = 10_000;
+    /** Żądania czekające na wątek przeciążenia; ponad to HttpServer po prostu zamyka połączenie. */
+    private static final int OVERFLOW_QUEUE = 64;
+
+    /** Ustawiane na czas żądania przyjętego przez wątek przeciążenia — handle odpowiada wtedy 503. */
+    private static final ThreadLocal<Boolean> SATURATED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final TopServerRewards plugin;
+    private final VoteStatusCache cache;
+    private final NegativeCheckCache negativeCache;
+
+    /** Podpis → czas przyjęcia w ms, w kolejności przyjęcia. */
+    private final Map<String, Long> seenSignatures = new LinkedHashMap<>();
+
+    private HttpServer server;
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor overflow;
+    private ScheduledExecutorService watchdog;
+    private SecretKeySpec key;
+    private boolean autoClaim;
+    private int maxBodyBytes;
+    private long maxClockSkewSeconds;
+    private long requestTimeoutMillis;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public VoteWebhook(TopServerRewards plugin, VoteStatusCache cache, NegativeCheckCache negativeCache) {
+        this.plugin = plugin;
+        this.cache = cache;
+        this.negativeCache = negativeCache;
+    }
+
+    /**
+     * Uruchamia serwer według sekcji vote-webhook z config.yml.
+     * Zmiany tej sekcji wymagają restartu serwera.
+     */
+    public void start() {
+        var config = plugin.getConfig();
+        if (!config.getBoolean("vote-webhook.enabled", false))
+            return;
+
+        String secret = config.getString("vote-webhook.secret", "");
+        if (secret.isEmpty()) {
+            plugin.getLogger().warning("vote-webhook.secret jest pusty - webhook nie zostal uruchomiony.");
+            return;
+        }
+
+        key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC);
+        autoClaim = config.getBoolean("vote-webhook.auto-claim", true);
+        maxBodyBytes = Math.max(256, config.getInt("vote-webhook.max-body-bytes", 4096));
+        maxClockSkewSeconds = Math.max(10, config.getLong("vote-webhook.max-clock-skew", 300));
+        requestTimeoutMillis = Math.max(500L, config.getLong("vote-webhook.request-timeout-ms", 5000L));
+
+        String host = config.getString("vote-webhook.host", "0.0.0.0");
+        int port = config.getInt("vote-webhook.port", 8195);
+        String path = config.getString("vote-webhook.path", "/topserver/vote");
+        int threads = Math.max(1, config.getInt("vote-webhook.threads", 2));
+
+        // Wątek akceptujący połączenia nigdy nie obsługuje żądania sam: przy pełnej
+        // kolejce żądanie idzie do wątku przeciążenia, który odpowiada tylko 503
+        AtomicInteger threadCounter = new AtomicInteger();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 32), daemonThreads(
+                        () -> "TopServerRewards-webhook-" + threadCounter.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        ThreadPoolExecutor saturated = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(OVERFLOW_QUEUE), daemonThreads(() -> "TopServerRewards-webhook-busy"),
+                new ThreadPoolExecutor.AbortPolicy());
+        ScheduledExecutorService timeouts = Executors.newSingleThreadScheduledExecutor(
+                daemonThreads(() -> "TopServerRewards-webhook-timeout"));
+
+        HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(host, port), 64);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Nie mozna uruchomic webhooka na " + host + ":" + port + ": " + e.getMessage());
+            workers.shutdown();
+            saturated.shutdown();
+            timeouts.shutdown();
+            return;
+        }
+        executor = workers;
+        overflow = saturated;
+        watchdog = timeouts;
+        server = httpServer;
+        server.createContext(path, this::handle);
+        server.setExecutor(exchange -> dispatch(exchange, workers, saturated, timeouts));
+        server.start();
+        plugin.getLogger().info("Webhook glosow nasluchuje na " + host + ":" + port + path);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            overflow.shutdownNow();
+            watchdog.shutdownNow();
+            executor = null;
+            overflow = null;
+            watchdog = null;
+        }
+        synchronized (seenSignatures) {
+            seenSignatures.clear();
+        }
+    }
+
+    /** Żądania, które dostały 503, bo pula była pełna. */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /** Żądania przerwane po request-timeout-ms. */
+    public long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * Przekazuje połączenie do puli, a przy pełnej kolejce do wątku
+     * przeciążenia. Jeśli i ten nie nadąża, wyjątek trafia do HttpServera,
+     * który zamyka połączenie bez odpowiedzi.
+     */
+    private void dispatch(Runnable exchange, ThreadPoolExecutor workers, ThreadPoolExecutor saturated,
+            ScheduledExecutorService timeouts) {
+        try {
+            workers.execute(withDeadline(exchange, false, timeouts));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            saturated.execute(withDeadline(exchange, true, timeouts));
+        }
+    }
+
+    /**
+     * Obsługa połączenia z limitem czasu. HttpServer czyta i pisze przez
+     * blokujący SocketChannel, więc przerwanie wątku zamyka połączenie i
+     * kończy zablokowany odczyt wyjątkiem.
+     */
+    private Runnable withDeadline(Runnable exchange, boolean busy, ScheduledExecutorService timeouts) {
+        return () -> {
+            Deadline deadline = new Deadline(Thread.currentThread());
+            ScheduledFuture<?> timeout = null;
+            try {
+                timeout = timeouts.schedule(deadline::expire, requestTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Webhook jest zatrzymywany — pula i tak zaraz przerwie wątki
+            }
+            SATURATED.set(busy);
+            try {
+                exchange.run();
+            } finally {
+                SATURATED.remove();
+                if (timeout != null)
+                    timeout.cancel(false);
+                if (deadline.disarm())
+                    timedOut.incrementAndGet();
+            }
+        };
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (SATURATED.get()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.getResponseHeaders().set("Connection", "close");
+                reply(exchange, 503);
+                return;
+            }
+
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                reply(exchange, 405);
+                return;
+            }
+
+            String lengthHeader = exchange.getRequestHeaders().getFirst("Content-Length");
+            if (lengthHeader != null) {
+                try {
+                    if (Long.parseLong(lengthHeader.trim()) > maxBodyBytes) {
+                        reply(exchange, 413);
+                        return;
+                    }
+                } catch (NumberFormatException e) {
+                    reply(exchange, 400);
+                    return;
+                }
+            }
+
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                reply(exchange, 413);
+                return;
+            }
+
+            String timestamp = exchange.getRequestHeaders().getFirst(TIMESTAMP_HEADER);
+            String signature = exchange.getRequestHeaders().getFirst(SIGNATURE_HEADER);
+            if (timestamp == null || signature == null || !isFresh(timestamp) || !verify(timestamp, body, signature)) {
+                reply(exchange, 401);
+                return;
+            }
+
+            VoteNotification vote;
+            try {
+                vote = JsonResponseDecoder.decodeVote(body);
+            } catch (IOException e) {
+                reply(exchange, 400);
+                return;
+            }
+            if (vote.nick() == null || vote.nick().isEmpty() || !vote.hasVoteId()) {
+                reply(exchange, 400);
+                return;
+            }
+
+            // Dopiero poprawne żądanie zajmuje miejsce w pamięci powtórzeń
+            if (!markSeen(signature.trim().toLowerCase(Locale.ROOT))) {
+                reply(exchange, 409);
+                return;
+            }
+
+            if (plugin.isEnabled())
+                Bukkit.getScheduler().runTask(plugin, () -> accept(vote));
+            reply(exchange, 204);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Czyta treść żądania, albo zwraca null jeśli przekracza max-body-bytes.
+     */
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxBodyBytes, 1024));
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > maxBodyBytes)
+                return null;
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private boolean isFresh(String timestamp) {
+        try {
+            long sentAt = Long.parseLong(timestamp.trim());
+            return Math.abs(System.currentTimeMillis() / 1000L - sentAt) <= maxClockSkewSeconds;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private boolean verify(String timestamp, byte[] body, String signature) {
+        byte[] expected;
+        byte[] given;
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            mac.update(timestamp.trim().getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) '.');
+            expected = mac.doFinal(body);
+            given = HexFormat.of().parseHex(signature.trim());
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected, given);
+    }
+
+    /**
+     * Zapamiętuje podpis na czas okna zegara. Zwraca false, jeśli ten sam
+     * podpis już przyszedł — starszych i tak nie przepuści {@link #isFresh}.
+     */
+    private boolean markSeen(String signature) {
+        long now = System.currentTimeMillis();
+        long windowMillis = maxClockSkewSeconds * 2000L;
+        synchronized (seenSignatures) {
+            Iterator<Long> it = seenSignatures.values().iterator();
+            while (it.hasNext()) {
+                long seenAt = it.next();
+                if (now - seenAt <= windowMillis && seenSignatures.size() < MAX_SEEN_SIGNATURES)
+                    break;
+                it.remove();
+            }
+            return seenSignatures.putIfAbsent(signature, now) == null;
+        }
+    }
+
+    private void accept(VoteNotification vote) {
+        Player player = Bukkit.getPlayerExact(vote.nick());
+        if (player == null)
+            return;
+
+        // Powiadomienie dotyczy jednego głosu — starsze mogą nadal czekać
+        cache.put(player.getUniqueId(), new VoteStatus(List.of(vote.toVote()), false, System.currentTimeMillis()));
+        negativeCache.invalidate(player.getUniqueId());
+
+        if (autoClaim && player.hasPermission("topserver.claim"))
+            plugin.claimReward(player);
+    }
+
+    private static void reply(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    private static ThreadFactory daemonThreads(Supplier<String> names) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, names.get());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Limit czasu jednego żądania. Przerwanie i jego skasowanie są pod tym
+     * samym zamkiem, więc przerwanie nie przecieknie do następnego zadania
+     * w wątku puli.
+     */
+    private static final class Deadline {
+
+        private final Thread thread;
+        private boolean armed = true;
+        private boolean expired;
+
+        Deadline(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void expire() {
+            if (!armed)
+                return;
+            armed = false;
+            expired = true;
+            thread.interrupt();
+        }
+
+        /**
+         * Wołane przez wątek żądania po jego obsłużeniu. Zwraca true, jeśli limit minął.
+         */
+        synchronized boolean disarm() {
+            armed = false;
+            if (expired)
+                Thread.interrupted();
+            return expired;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pl.topserver.rewards.claim;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CooldownStore} pod stałym napływem nowych graczy, bez ręcznego
+ * {@link CooldownStore#sweep}: wygasłe wpisy muszą znikać przy samych
+ * tryAcquire, więc tablica nie rośnie z liczbą wszystkich graczy, którzy
+ * kiedykolwiek odbierali nagrodę.
+ */
+public class CooldownStoreTest {
+
+    /** Tyle cooldownów trwa każdy test. */
+    private static final int PERIODS = 10;
+
+    @Test
+    public void shortCooldownStaysBoundedUnderChurn() {
+        // Cooldown krótszy niż okres czyszczenia — czyści zapełnienie tablicy
+        assertBoundedUnderChurn(5_000L, 200);
+    }
+
+    @Test
+    public void longCooldownStaysBoundedUnderChurn() {
+        // Cooldown dłuższy niż okres czyszczenia — czyści upływ czasu
+        assertBoundedUnderChurn(300_000L, 20);
+    }
+
+    @Test
+    public void playerInCooldownIsRejected() {
+        CooldownStore store = new CooldownStore(5_000L);
+        UUID player = UUID.randomUUID();
+
+        assertEquals(0L, store.tryAcquire(player, 1_000L));
+        assertEquals(3_000L, store.tryAcquire(player, 3_000L));
+        assertEquals(0L, store.tryAcquire(player, 6_000L));
+        assertEquals(1, store.size());
+    }
+
+    /**
+     * Co sekundę {@code perSecond} nowych graczy odbiera nagrodę, przez
+     * {@link #PERIODS} cooldownów. W oknie cooldownu jest naraz najwyżej
+     * {@code live = perSecond * cooldown} graczy; po przebudowie tablica ma
+     * najmniejszą potęgę dwójki ≥ 2 × live, a przebudowa następuje przy 75%
+     * zapełnienia, więc pojemność nie może przekroczyć 4 × live.
+     */
+    private static void assertBoundedUnderChurn(long cooldownMillis, int perSecond) {
+        CooldownStore store = new CooldownStore(cooldownMillis);
+        long live = perSecond * (cooldownMillis / 1000L);
+        long maxCapacity = Math.max(64L, 4L * live);
+
+        long seconds = PERIODS * cooldownMillis / 1000L;
+        long sequence = 0;
+        int peakCapacity = 0;
+        int peakSize = 0;
+        for (long second = 1; second <= seconds; second++) {
+            long now = second * 1000L;
+            for (int i = 0; i < perSecond; i++) {
+                UUID player = new UUID(0x7E57L, sequence++);
+                assertEquals(0L, store.tryAcquire(player, now));
+            }
+
+            peakCapacity = Math.max(peakCapacity, store.capacity());
+            peakSize = Math.max(peakSize, store.size());
+            assertTrue("pojemnosc " + store.capacity() + " > " + maxCapacity + " po " + second + " s",
+                    store.capacity() <= maxCapacity);
+            assertTrue("wpisy " + store.size() + " > 75% pojemnosci " + store.capacity(),
+                    store.size() * 4L <= store.capacity() * 3L);
+
+            // Gracz sprzed sekundy jest nadal w cooldownie — czyszczenie go nie zgubiło
+            if (second > 1) {
+                UUID recent = new UUID(0x7E57L, sequence - perSecond - 1);
+                assertEquals(1_000L, cooldownMillis - store.tryAcquire(recent, now));
+            }
+        }
+
+        // Wszyscy od początku testu to PERIODS razy więcej graczy niż mieści się w oknie
+        assertEquals(PERIODS * live, sequence);
+        assertTrue("pojemnosc " + peakCapacity + " rosnie z liczba wszystkich graczy (" + sequence + ")",
+                peakCapacity < sequence / 2);
+        assertTrue("wpisy " + peakSize + " rosna z liczba wszystkich graczy (" + sequence + ")",
+                peakSize < sequence / 2);
+    }
+}
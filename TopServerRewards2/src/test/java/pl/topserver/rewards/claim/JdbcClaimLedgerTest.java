@@ -0,0 +1,202 @@
+package pl.topserver.rewards.claim;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link JdbcClaimLedger} na bazie H2 w pamięci, wspólnej dla dwóch
+ * serwerów (dwa rejestry z różnym node id w tej samej JVM).
+ * <p>
+ * Czas odbierania jest podawany jawnie ({@code now}), więc wygasanie
+ * dzierżaw nie wymaga czekania. Dzierżawa i opóźnienie zapisu zwolnień
+ * trwają minutę — wątek rejestru nie ruszy w trakcie testu, przedłużanie
+ * i zapis zwolnień woła sam test. Wyjątkiem jest test wyścigu, w którym
+ * zwolnienia są zapisywane od razu.
+ */
+public class JdbcClaimLedgerTest {
+
+    private static final long LEASE_MILLIS = 60_000L;
+    private static final long FLUSH_DELAY_MILLIS = 60_000L;
+    private static final String TABLE = "claim_ledger";
+
+    private final Logger logger = Logger.getLogger("JdbcClaimLedgerTest");
+
+    private String url;
+    /** Trzyma bazę w pamięci między połączeniami rejestrów. */
+    private Connection keepAlive;
+    private JdbcClaimLedger nodeA;
+    private JdbcClaimLedger nodeB;
+
+    @Before
+    public void setUp() throws SQLException {
+        url = "jdbc:h2:mem:ledger-" + UUID.randomUUID();
+        keepAlive = DriverManager.getConnection(url);
+        // Zwolnienia czekają w kolejce, dopóki test ich nie zapisze (forceFlush)
+        nodeA = open("node-a", FLUSH_DELAY_MILLIS);
+        nodeB = open("node-b", FLUSH_DELAY_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        nodeA.close();
+        nodeB.close();
+        keepAlive.close();
+    }
+
+    private JdbcClaimLedger open(String nodeId, long flushDelayMillis) {
+        ClaimLedger ledger = JdbcClaimLedger.open(url, "", "", TABLE, nodeId, LEASE_MILLIS, flushDelayMillis,
+                logger);
+        assertTrue("rejestr JDBC zamiast lokalnego", ledger instanceof JdbcClaimLedger);
+        return (JdbcClaimLedger) ledger;
+    }
+
+    @Test
+    public void acquiresFreePlayer() {
+        UUID player = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+
+        assertEquals(0L, nodeA.tryAcquire(player, now, 0L));
+        assertEquals(now + LEASE_MILLIS, leaseUntil(player));
+    }
+
+    @Test
+    public void rejectsPlayerHeldByOtherNode() {
+        UUID player = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+
+        assertEquals(0L, nodeA.tryAcquire(player, now, 0L));
+        assertEquals(ClaimLedger.IN_PROGRESS, nodeB.tryAcquire(player, now + 1, 0L));
+    }
+
+    @Test
+    public void rejectsCooldownSetByOtherNode() {
+        UUID player = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+
+        assertEquals(0L, nodeA.tryAcquire(player, now, 30_000L));
+        nodeA.release(player);
+        forceFlush(nodeA);
+
+        assertEquals(29_000L, nodeB.tryAcquire(player, now + 1000L, 30_000L));
+    }
+
+    @Test
+    public void otherNodeTakesOverExpiredLease() {
+        UUID player = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+
+        assertEquals(0L, nodeA.tryAcquire(player, now, 0L));
+        // Serwer A padł w trakcie odbierania — nikt nie zwolnił dzierżawy
+        long afterLease = now + LEASE_MILLIS + 1;
+        assertEquals(0L, nodeB.tryAcquire(player, afterLease, 0L));
+        assertEquals(ClaimLedger.IN_PROGRESS, nodeA.tryAcquire(player, afterLease + 1, 0L));
+    }
+
+    @Test
+    public void renewalKeepsLongClaimFromExpiring() {
+        UUID player = UUID.randomUUID();
+        // Odbieranie zaczęło się 10 s temu — przedłużenie liczy się od teraz
+        long startedAt = System.currentTimeMillis() - 10_000L;
+
+        assertEquals(0L, nodeA.tryAcquire(player, startedAt, 0L));
+        nodeA.renewLeases();
+
+        assertTrue(leaseUntil(player) > startedAt + LEASE_MILLIS);
+        assertEquals(ClaimLedger.IN_PROGRESS, nodeB.tryAcquire(player, startedAt + LEASE_MILLIS + 1, 0L));
+    }
+
+    @Test
+    public void renewalSkipsReleasedLeases() {
+        UUID player = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+
+        assertEquals(0L, nodeA.tryAcquire(player, now, 0L));
+        nodeA.release(player);
+        forceFlush(nodeA);
+        nodeA.renewLeases();
+
+        assertEquals(0L, leaseUntil(player));
+    }
+
+    @Test
+    public void releasesAreWrittenInOneBatch() {
+        List<UUID> players = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            UUID player = UUID.randomUUID();
+            players.add(player);
+            assertEquals(0L, nodeA.tryAcquire(player, now, 0L));
+        }
+        for (UUID player : players)
+            nodeA.release(player);
+
+        // Ponowne odbieranie pierwszego gracza zapisuje całą kolejkę zwolnień
+        assertEquals(0L, nodeA.tryAcquire(players.get(0), now + 1, 0L));
+        for (UUID player : players.subList(1, players.size())) {
+            assertEquals(0L, leaseUntil(player));
+            assertEquals(0L, nodeB.tryAcquire(player, now + 2, 0L));
+        }
+        // Pierwszy gracz ma nową dzierżawę, której flush nie zdjął
+        assertEquals(ClaimLedger.IN_PROGRESS, nodeB.tryAcquire(players.get(0), now + 2, 0L));
+    }
+
+    @Test
+    public void concurrentFlushDoesNotDropNewLease() throws InterruptedException {
+        // Zwolnienia zapisywane od razu przez wątek rejestru — ścigają się z tryAcquire
+        JdbcClaimLedger racing = open("node-c", 0L);
+        try {
+            for (int i = 0; i < 200; i++) {
+                UUID player = UUID.randomUUID();
+                long now = System.currentTimeMillis();
+                assertEquals(0L, racing.tryAcquire(player, now, 0L));
+                racing.release(player);
+                assertEquals(0L, racing.tryAcquire(player, now + 1, 0L));
+
+                // Spóźniony flush nie może wyzerować drugiej dzierżawy
+                Thread.sleep(2L);
+                assertEquals("iteracja " + i, now + 1 + LEASE_MILLIS, leaseUntil(player));
+                assertEquals(ClaimLedger.IN_PROGRESS, nodeB.tryAcquire(player, now + 2, 0L));
+            }
+        } finally {
+            racing.close();
+        }
+    }
+
+    /**
+     * Zapisuje kolejkę zwolnień rejestru przez tryAcquire gracza, którego ten rejestr trzyma.
+     */
+    private static void forceFlush(JdbcClaimLedger ledger) {
+        UUID other = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        assertEquals(0L, ledger.tryAcquire(other, now, 0L));
+        ledger.release(other);
+        assertEquals(0L, ledger.tryAcquire(other, now + 1, 0L));
+    }
+
+    private long leaseUntil(UUID player) {
+        try (PreparedStatement select = keepAlive.prepareStatement(
+                "SELECT lease_until FROM " + TABLE + " WHERE player_id = ?")) {
+            select.setString(1, player.toString());
+            try (ResultSet row = select.executeQuery()) {
+                assertTrue("brak wiersza gracza", row.next());
+                return row.getLong(1);
+            }
+        } catch (SQLException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package pl.topserver.rewards.rewards;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link DeliveryScheduler#stop}: potwierdzone nagrody z kolejki są wydawane
+ * przy wyłączaniu, a nie wyrzucane. Bez startu — tick na głównym wątku
+ * w teście nie działa, kolejkę opróżnia tylko stop().
+ */
+public class DeliverySchedulerTest {
+
+    private final Logger logger = Logger.getLogger("DeliverySchedulerTest");
+    private final Plugin plugin = (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(),
+            new Class<?>[] { Plugin.class }, (proxy, method, args) -> {
+                if (method.getName().equals("getLogger"))
+                    return logger;
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    @Test
+    public void stopDeliversQueuedRewards() {
+        DeliveryScheduler scheduler = new DeliveryScheduler(plugin, 2.0);
+        List<Integer> delivered = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int reward = i;
+            scheduler.submit(() -> delivered.add(reward));
+        }
+
+        scheduler.stop();
+
+        assertEquals(List.of(0, 1, 2, 3, 4), delivered);
+        assertEquals(0, scheduler.getQueueLength());
+        assertEquals(5L, scheduler.getDeliveredCount());
+    }
+
+    @Test
+    public void failingRewardDoesNotStopDrain() {
+        DeliveryScheduler scheduler = new DeliveryScheduler(plugin, 2.0);
+        List<Integer> delivered = new ArrayList<>();
+        scheduler.submit(() -> delivered.add(1));
+        scheduler.submit(() -> {
+            throw new IllegalStateException("test");
+        });
+        scheduler.submit(() -> delivered.add(3));
+
+        scheduler.stop();
+
+        assertEquals(List.of(1, 3), delivered);
+    }
+
+    @Test
+    public void submitAfterStopIsNotLeftInQueue() {
+        DeliveryScheduler scheduler = new DeliveryScheduler(plugin, 2.0);
+        scheduler.stop();
+
+        List<Integer> delivered = new ArrayList<>();
+        scheduler.submit(() -> delivered.add(1));
+
+        assertEquals(0, scheduler.getQueueLength());
+        assertEquals(List.of(), delivered);
+    }
+}